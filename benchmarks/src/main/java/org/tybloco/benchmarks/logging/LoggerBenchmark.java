@@ -0,0 +1,141 @@
+package org.tybloco.benchmarks.logging;
+
+/*-
+ * #%L
+ * benchmarks
+ * %%
+ * Copyright (C) 2023 Montoni
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import org.openjdk.jmh.annotations.*;
+import org.slf4j.Logger;
+import org.tybloco.runtime.logging.LoggingServiceProvider;
+import org.tybloco.runtime.util.SettingsSnapshot;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx1g")
+public class LoggerBenchmark {
+
+  private final IllegalStateException error = new IllegalStateException("benchmark");
+  private Path config;
+  private LoggingServiceProvider provider;
+  private Logger logger;
+
+  @Setup
+  public void setup() throws IOException {
+    config = Files.createTempFile("ty-benchmark-", ".properties");
+    Files.writeString(config, "logger.org.tybloco.benchmarks=INFO\n");
+    System.setProperty("ty.log.config", config.toString());
+    SettingsSnapshot.refresh();
+    try {
+      provider = new LoggingServiceProvider(OutputStream.nullOutputStream());
+    } finally {
+      System.clearProperty("ty.log.config");
+      SettingsSnapshot.refresh();
+    }
+    logger = provider.getLoggerFactory().getLogger("org.tybloco.benchmarks.Logger");
+    if (logger.isDebugEnabled() || !logger.isInfoEnabled()) {
+      throw new IllegalStateException("Benchmark logger must be at INFO level");
+    }
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    provider.close();
+    Files.deleteIfExists(config);
+  }
+
+  @Benchmark
+  public void disabled(Counter counter) {
+    logger.debug("Value {}", counter.next());
+  }
+
+  @Benchmark
+  public void disabledGuarded(Counter counter) {
+    if (logger.isDebugEnabled()) {
+      logger.debug("Value {}", counter.next());
+    }
+  }
+
+  @Benchmark
+  public void disabledFluent(Counter counter) {
+    logger.atDebug().addKeyValue("value", counter.next()).log("Value");
+  }
+
+  @Benchmark
+  public void enabledNoArgs() {
+    logger.info("Constant message");
+  }
+
+  @Benchmark
+  public void enabledArgs(Counter counter) {
+    logger.info("Value {} of {}", counter.next(), "benchmark");
+  }
+
+  @Benchmark
+  public void enabledFluent(Counter counter) {
+    logger.atInfo().addKeyValue("value", counter.next()).addKeyValue("name", "benchmark").log("Value");
+  }
+
+  @Benchmark
+  public void enabledMdc(Mdc mdc, Counter counter) {
+    logger.info("Value {}", counter.next());
+  }
+
+  @Benchmark
+  public void enabledThrowable() {
+    logger.error("Failure", error);
+  }
+
+  @State(Scope.Thread)
+  public static class Counter {
+
+    private long value;
+
+    long next() {
+      return value++;
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class Mdc {
+
+    @Setup
+    public void setup(LoggerBenchmark benchmark) {
+      var mdc = benchmark.provider.getMDCAdapter();
+      mdc.put("request", "0123456789abcdef");
+      mdc.put("user", "benchmark");
+      mdc.put("tenant", "default");
+    }
+
+    @TearDown
+    public void tearDown(LoggerBenchmark benchmark) {
+      benchmark.provider.getMDCAdapter().clear();
+    }
+  }
+}
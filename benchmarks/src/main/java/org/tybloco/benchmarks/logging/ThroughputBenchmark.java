@@ -0,0 +1,133 @@
+package org.tybloco.benchmarks.logging;
+
+/*-
+ * #%L
+ * benchmarks
+ * %%
+ * Copyright (C) 2023 Montoni
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import org.openjdk.jmh.annotations.*;
+import org.slf4j.Logger;
+import org.tybloco.runtime.logging.LoggingServiceProvider;
+
+import java.io.BufferedOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.locks.LockSupport;
+
+import static java.nio.file.StandardOpenOption.WRITE;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(SECONDS)
+@OperationsPerInvocation(ThroughputBenchmark.RECORDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx2g", "-Dty.log.queue.size=4096"})
+public class ThroughputBenchmark {
+
+  static final int RECORDS = 1 << 16;
+
+  @Param({"1", "4", "16", "64"})
+  public int producers;
+
+  @Param({"platform", "virtual"})
+  public String threads;
+
+  @Param({"null", "file"})
+  public String sink;
+
+  private Path file;
+  private FileChannel channel;
+  private CountingStream stream;
+  private LoggingServiceProvider provider;
+  private Logger logger;
+  private ThreadFactory threadFactory;
+
+  @Setup
+  public void setup() throws IOException {
+    if ("file".equals(sink)) {
+      file = Files.createTempFile("ty-benchmark-", ".log");
+      channel = FileChannel.open(file, WRITE);
+      stream = new CountingStream(new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16));
+    } else {
+      stream = new CountingStream(OutputStream.nullOutputStream());
+    }
+    provider = new LoggingServiceProvider(stream);
+    logger = provider.getLoggerFactory().getLogger("org.tybloco.benchmarks.Throughput");
+    threadFactory = "virtual".equals(threads) ? Thread.ofVirtual().factory() : Thread.ofPlatform().factory();
+  }
+
+  @TearDown(org.openjdk.jmh.annotations.Level.Iteration)
+  public void truncate() throws IOException {
+    if (channel != null) channel.truncate(0L);
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    provider.close();
+    if (channel != null) {
+      channel.close();
+      Files.deleteIfExists(file);
+    }
+  }
+
+  @Benchmark
+  public void logging() throws InterruptedException {
+    var target = stream.records + RECORDS;
+    var count = RECORDS / producers;
+    var workers = new Thread[producers];
+    for (int i = 0; i < workers.length; i++) {
+      var producer = i;
+      workers[i] = threadFactory.newThread(() -> {
+        for (int j = 0; j < count; j++) {
+          logger.info("Record {} of producer {}", j, producer);
+        }
+      });
+      workers[i].start();
+    }
+    for (var worker : workers) {
+      worker.join();
+    }
+    while (stream.records < target) {
+      LockSupport.parkNanos(10_000L);
+    }
+  }
+
+  private static final class CountingStream extends FilterOutputStream {
+
+    private volatile long records;
+
+    private CountingStream(OutputStream out) {
+      super(out);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      out.write(b, off, len);
+      records++;
+    }
+  }
+}
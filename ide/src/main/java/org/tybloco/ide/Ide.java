@@ -23,7 +23,7 @@ package org.tybloco.ide;
 
 import org.tybloco.ide.splash.SplashPreloader;
 import org.tybloco.ide.splash.SplashStatus;
-import org.tybloco.logging.FastConsoleHandler;
+import org.tybloco.logging.AsyncConsoleHandler;
 import org.tybloco.logging.LoggingManager;
 import org.tybloco.ui.Main;
 import org.tybloco.ui.splash.SplashBeanPostProcessor;
@@ -45,6 +45,6 @@ public class Ide {
   private static void initLogging() {
     setProperty("java.util.logging.manager", LoggingManager.class.getName());
     var rootLogger = getLogManager().getLogger("");
-    rootLogger.addHandler(new FastConsoleHandler());
+    rootLogger.addHandler(new AsyncConsoleHandler());
   }
 }
@@ -0,0 +1,114 @@
+package org.tybloco.logging;
+
+/*-
+ * #%L
+ * library
+ * %%
+ * Copyright (C) 2023 Montoni
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+public final class AsyncConsoleHandler extends FastConsoleHandler {
+
+  private final ArrayBlockingQueue<LogRecord> queue;
+  private final AtomicLong dropped = new AtomicLong();
+  private final Thread thread;
+  private final Consumer<? super LogRecord> sink;
+  private volatile boolean running = true;
+
+  public AsyncConsoleHandler() {
+    this(8192);
+  }
+
+  public AsyncConsoleHandler(int capacity) {
+    this(capacity, null);
+  }
+
+  AsyncConsoleHandler(int capacity, Consumer<? super LogRecord> sink) {
+    this.sink = sink == null ? super::publish : sink;
+    queue = new ArrayBlockingQueue<>(capacity);
+    thread = Thread.ofPlatform().name("async-console-log").daemon().unstarted(this::run);
+    thread.start();
+  }
+
+  @Override
+  public void publish(LogRecord record) {
+    if (!running || !queue.offer(record)) {
+      dropped.incrementAndGet();
+    }
+  }
+
+  @Override
+  public void close() {
+    running = false;
+    try {
+      thread.join(5_000L);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void run() {
+    var batch = new ArrayList<LogRecord>(256);
+    while (running || !queue.isEmpty()) {
+      try {
+        var record = queue.poll(100L, MILLISECONDS);
+        if (record == null) {
+          continue;
+        }
+        batch.add(record);
+        queue.drainTo(batch, 255);
+        for (var r : batch) {
+          publishNow(r);
+        }
+      } catch (InterruptedException e) {
+        break;
+      } finally {
+        batch.clear();
+      }
+      reportDropped();
+    }
+    reportDropped();
+  }
+
+  private void reportDropped() {
+    var count = dropped.getAndSet(0L);
+    if (count > 0L) {
+      var record = new LogRecord(Level.WARNING, "Dropped {0} log records");
+      record.setSourceClassName(null);
+      record.setLoggerName(AsyncConsoleHandler.class.getName());
+      record.setParameters(new Object[] {count});
+      publishNow(record);
+    }
+  }
+
+  private void publishNow(LogRecord record) {
+    try {
+      sink.accept(record);
+    } catch (Throwable e) {
+      e.printStackTrace(System.err);
+    }
+  }
+}
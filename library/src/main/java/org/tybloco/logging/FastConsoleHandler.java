@@ -26,6 +26,7 @@ import java.io.StringWriter;
 import java.text.MessageFormat;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeFormatterBuilder;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.*;
 
 import static java.time.ZoneOffset.UTC;
@@ -42,6 +43,8 @@ public class FastConsoleHandler extends Handler {
     .appendValue(MILLI_OF_SECOND, 3)
     .toFormatter(UK);
 
+  private static final ConcurrentHashMap<String, MessageFormat> FORMATS = new ConcurrentHashMap<>(64, 0.5f);
+
   @Override
   public void publish(LogRecord record) {
     var writer = new StringWriter(128);
@@ -56,8 +59,10 @@ public class FastConsoleHandler extends Handler {
       buffer.append(record.getMessage());
     } else {
       try {
-        var fmt = new MessageFormat(record.getMessage());
-        fmt.format(params, buffer, null);
+        var fmt = format(record.getMessage());
+        synchronized (fmt) {
+          fmt.format(params, buffer, null);
+        }
       } catch (Exception e) {
         buffer.append(record.getMessage());
       }
@@ -81,6 +86,17 @@ public class FastConsoleHandler extends Handler {
   public void close() {
   }
 
+  private static MessageFormat format(String pattern) {
+    var fmt = FORMATS.get(pattern);
+    if (fmt == null) {
+      if (FORMATS.size() >= 1024) {
+        FORMATS.clear();
+      }
+      fmt = FORMATS.computeIfAbsent(pattern, MessageFormat::new);
+    }
+    return fmt;
+  }
+
   private static char level(Level level) {
     return switch (level.intValue()) {
       case 1000 -> 'E';
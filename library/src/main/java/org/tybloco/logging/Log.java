@@ -31,137 +31,117 @@ public final class Log {
   }
 
   public static void log(Class<?> logger, Level level, String message) {
-    var record = new LogRecord(level, message);
-    record.setSourceClassName(null);
-    record.setLoggerName(logger.getName());
-    LOGGER.log(record);
+    if (LOGGER.isLoggable(level)) {
+      publish(logger.getName(), level, message, null, null);
+    }
   }
 
   public static void log(Class<?> logger, Level level, String message, Object... params) {
-    var record = new LogRecord(level, message);
-    record.setSourceClassName(null);
-    record.setLoggerName(logger.getName());
-    record.setParameters(params);
-    LOGGER.log(record);
+    if (LOGGER.isLoggable(level)) {
+      publish(logger.getName(), level, message, null, params);
+    }
   }
 
   public static void log(Class<?> logger, Level level, String message, Throwable cause, Object... params) {
-    var record = new LogRecord(level, message);
-    record.setSourceClassName(null);
-    record.setLoggerName(logger.getName());
-    record.setParameters(params);
-    record.setThrown(cause);
-    LOGGER.log(record);
+    if (LOGGER.isLoggable(level)) {
+      publish(logger.getName(), level, message, cause, params);
+    }
   }
 
   public static void log(String logger, Level level, String message) {
-    var record = new LogRecord(level, message);
-    record.setSourceClassName(null);
-    record.setLoggerName(logger);
-    LOGGER.log(record);
+    if (LOGGER.isLoggable(level)) {
+      publish(logger, level, message, null, null);
+    }
   }
 
   public static void log(String logger, Level level, String message, Object... params) {
-    var record = new LogRecord(level, message);
-    record.setSourceClassName(null);
-    record.setLoggerName(logger);
-    record.setParameters(params);
-    LOGGER.log(record);
+    if (LOGGER.isLoggable(level)) {
+      publish(logger, level, message, null, params);
+    }
   }
 
   public static void log(String logger, Level level, String message, Throwable cause, Object... params) {
-    var record = new LogRecord(level, message);
-    record.setSourceClassName(null);
-    record.setLoggerName(logger);
-    record.setParameters(params);
-    record.setThrown(cause);
-    LOGGER.log(record);
+    if (LOGGER.isLoggable(level)) {
+      publish(logger, level, message, cause, params);
+    }
   }
 
   public static void info(Class<?> logger, String message) {
-    var record = new LogRecord(Level.INFO, message);
-    record.setSourceClassName(null);
-    record.setLoggerName(logger.getName());
-    LOGGER.log(record);
+    if (LOGGER.isLoggable(Level.INFO)) {
+      publish(logger.getName(), Level.INFO, message, null, null);
+    }
   }
 
   public static void info(Class<?> logger, String message, Object... params) {
-    var record = new LogRecord(Level.INFO, message);
-    record.setSourceClassName(null);
-    record.setLoggerName(logger.getName());
-    record.setParameters(params);
-    LOGGER.log(record);
+    if (LOGGER.isLoggable(Level.INFO)) {
+      publish(logger.getName(), Level.INFO, message, null, params);
+    }
   }
 
   public static void debug(Class<?> logger, String message) {
-    var record = new LogRecord(Level.FINE, message);
-    record.setSourceClassName(null);
-    record.setLoggerName(logger.getName());
-    LOGGER.log(record);
+    if (LOGGER.isLoggable(Level.FINE)) {
+      publish(logger.getName(), Level.FINE, message, null, null);
+    }
   }
 
   public static void debug(Class<?> logger, String message, Object... params) {
-    var record = new LogRecord(Level.FINE, message);
-    record.setSourceClassName(null);
-    record.setLoggerName(logger.getName());
-    record.setParameters(params);
-    LOGGER.log(record);
+    if (LOGGER.isLoggable(Level.FINE)) {
+      publish(logger.getName(), Level.FINE, message, null, params);
+    }
   }
 
   public static void debug(Class<?> logger, String message, Throwable cause, Object... params) {
-    var record = new LogRecord(Level.FINE, message);
-    record.setSourceClassName(null);
-    record.setLoggerName(logger.getName());
-    record.setParameters(params);
-    record.setThrown(cause);
-    LOGGER.log(record);
+    if (LOGGER.isLoggable(Level.FINE)) {
+      publish(logger.getName(), Level.FINE, message, cause, params);
+    }
   }
 
   public static void warn(Class<?> logger, String message) {
-    var record = new LogRecord(Level.WARNING, message);
-    record.setSourceClassName(null);
-    record.setLoggerName(logger.getName());
-    LOGGER.log(record);
+    if (LOGGER.isLoggable(Level.WARNING)) {
+      publish(logger.getName(), Level.WARNING, message, null, null);
+    }
   }
 
   public static void warn(Class<?> logger, String message, Object... params) {
-    var record = new LogRecord(Level.WARNING, message);
-    record.setSourceClassName(null);
-    record.setLoggerName(logger.getName());
-    record.setParameters(params);
-    LOGGER.log(record);
+    if (LOGGER.isLoggable(Level.WARNING)) {
+      publish(logger.getName(), Level.WARNING, message, null, params);
+    }
   }
 
   public static void warn(Class<?> logger, String message, Throwable cause, Object... params) {
-    var record = new LogRecord(Level.WARNING, message);
-    record.setSourceClassName(null);
-    record.setLoggerName(logger.getName());
-    record.setParameters(params);
-    record.setThrown(cause);
-    LOGGER.log(record);
+    if (LOGGER.isLoggable(Level.WARNING)) {
+      publish(logger.getName(), Level.WARNING, message, cause, params);
+    }
   }
 
   public static void error(Class<?> logger, String message) {
-    var record = new LogRecord(Level.SEVERE, message);
-    record.setSourceClassName(null);
-    record.setLoggerName(logger.getName());
-    LOGGER.log(record);
+    if (LOGGER.isLoggable(Level.SEVERE)) {
+      publish(logger.getName(), Level.SEVERE, message, null, null);
+    }
   }
 
   public static void error(Class<?> logger, String message, Object... params) {
-    var record = new LogRecord(Level.SEVERE, message);
-    record.setSourceClassName(null);
-    record.setLoggerName(logger.getName());
-    record.setParameters(params);
-    LOGGER.log(record);
+    if (LOGGER.isLoggable(Level.SEVERE)) {
+      publish(logger.getName(), Level.SEVERE, message, null, params);
+    }
   }
 
   public static void error(Class<?> logger, String message, Throwable cause, Object... params) {
-    var record = new LogRecord(Level.SEVERE, message);
+    if (LOGGER.isLoggable(Level.SEVERE)) {
+      publish(logger.getName(), Level.SEVERE, message, cause, params);
+    }
+  }
+
+  private static void publish(String logger, Level level, String message, Throwable cause, Object[] params) {
+    var record = new LogRecord(level, message);
     record.setSourceClassName(null);
-    record.setLoggerName(logger.getName());
-    record.setParameters(params);
-    record.setThrown(cause);
+    record.setLoggerName(logger);
+    if (params != null) {
+      record.setParameters(params);
+    }
+    if (cause != null) {
+      record.setThrown(cause);
+    }
     LOGGER.log(record);
   }
 }
@@ -0,0 +1,81 @@
+package org.tybloco.logging;
+
+/*-
+ * #%L
+ * library
+ * %%
+ * Copyright (C) 2023 Montoni
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.jupiter.api.Assertions.*;
+
+class AsyncConsoleHandlerTest {
+
+  @Test
+  void closeFlushesPublishedRecords() {
+    var written = Collections.synchronizedList(new ArrayList<String>());
+    var handler = new AsyncConsoleHandler(2048, r -> written.add(r.getMessage()));
+    for (int i = 0; i < 1000; i++) {
+      handler.publish(new LogRecord(Level.INFO, "m" + i));
+    }
+    handler.close();
+    assertEquals(1000, written.size());
+    for (int i = 0; i < 1000; i++) {
+      assertEquals("m" + i, written.get(i));
+    }
+    handler.publish(new LogRecord(Level.INFO, "late"));
+    assertFalse(written.contains("late"));
+  }
+
+  @Test
+  void overflowIsDroppedAndReported() throws Exception {
+    var entered = new CountDownLatch(1);
+    var release = new CountDownLatch(1);
+    var written = Collections.synchronizedList(new ArrayList<LogRecord>());
+    var handler = new AsyncConsoleHandler(4, r -> {
+      written.add(r);
+      entered.countDown();
+      try {
+        release.await();
+      } catch (InterruptedException e) {
+        throw new IllegalStateException(e);
+      }
+    });
+    handler.publish(new LogRecord(Level.INFO, "first"));
+    assertTrue(entered.await(10L, SECONDS));
+    for (int i = 0; i < 7; i++) {
+      handler.publish(new LogRecord(Level.INFO, "m" + i));
+    }
+    release.countDown();
+    handler.close();
+    var messages = written.stream().map(LogRecord::getMessage).toList();
+    assertEquals(List.of("first", "Dropped {0} log records", "m0", "m1", "m2", "m3"), messages);
+    var report = written.get(1);
+    assertEquals(Level.WARNING, report.getLevel());
+    assertArrayEquals(new Object[] {3L}, report.getParameters());
+  }
+}
@@ -21,15 +21,20 @@ package org.tybloco.runtime;
  * #L%
  */
 
+import org.slf4j.LoggerFactory;
 import org.tybloco.runtime.application.ApplicationContext;
 import org.tybloco.runtime.application.ApplicationTask;
 import org.tybloco.runtime.application.tasks.LogConfigurer;
+import org.tybloco.runtime.application.tasks.PinningMonitorInstaller;
 import org.tybloco.runtime.application.tasks.PluginLoader;
 import org.tybloco.runtime.exception.BootstrapException;
 import org.tybloco.runtime.util.Settings;
 
 import java.io.ObjectOutputStream;
 import java.io.PrintStream;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
 import java.util.concurrent.CountDownLatch;
 
 import static java.util.concurrent.locks.LockSupport.parkNanos;
@@ -43,27 +48,67 @@ public final class Main {
       var watchdog = new Thread(() -> watch(latch), "application-watchdog");
       watchdog.setDaemon(true);
       watchdog.start();
-      Runtime.getRuntime().addShutdownHook(new Thread(run()::close));
+      var context = run();
+      Runtime.getRuntime().addShutdownHook(new Thread(() -> shutdown(context)));
     } finally {
       latch.countDown();
     }
   }
 
   static ApplicationContext run() {
+    var startTime = Instant.now();
+    var start = System.nanoTime();
+    var steps = new LinkedHashMap<String, Long>();
     var context = new ApplicationContext(Thread.currentThread());
-    execute("initLogging", context, new LogConfigurer());
-    execute("loadPlugins", context, new PluginLoader());
+    steps.put("createContext", System.nanoTime() - start);
+    execute("initLogging", context, new LogConfigurer(), steps);
+    execute("pinningMonitor", context, new PinningMonitorInstaller(), steps);
+    execute("loadPlugins", context, new PluginLoader(), steps);
+    report(startTime, steps, System.nanoTime() - start);
     return context;
   }
 
-  private static void execute(String step, ApplicationContext context, ApplicationTask task) {
+  static void shutdown(ApplicationContext context) {
+    var start = System.nanoTime();
+    var undrained = context.drain();
+    try {
+      context.close();
+    } finally {
+      var ms = (System.nanoTime() - start) / 1e6;
+      var dropped = context.dropped();
+      LoggerFactory.getLogger("shutdown").atInfo()
+        .addKeyValue("dropped", dropped)
+        .addKeyValue("undrained", undrained)
+        .addKeyValue("duration_ms", ms)
+        .log("Shutdown took {} ms, dropped {} elements, undrained {}", ms, dropped, undrained);
+    }
+  }
+
+  private static void execute(String step, ApplicationContext context, ApplicationTask task, LinkedHashMap<String, Long> steps) {
+    var start = System.nanoTime();
     try {
       task.run(context);
     } catch (Throwable e) {
       throw new BootstrapException(step, e);
+    } finally {
+      steps.put(step, System.nanoTime() - start);
     }
   }
 
+  private static void report(Instant startTime, LinkedHashMap<String, Long> steps, long total) {
+    var logger = LoggerFactory.getLogger("bootstrap");
+    ProcessHandle.current().info().startInstant().ifPresent(processStart -> {
+      var jvm = Duration.between(processStart, startTime).toNanos();
+      logger.atInfo().addKeyValue("step", "jvm").addKeyValue("duration_ms", jvm / 1e6).log("Bootstrap step {} took {} ms", "jvm", jvm / 1e6);
+    });
+    steps.forEach((step, nanos) -> logger.atInfo()
+      .addKeyValue("step", step)
+      .addKeyValue("duration_ms", nanos / 1e6)
+      .log("Bootstrap step {} took {} ms", step, nanos / 1e6)
+    );
+    logger.atInfo().addKeyValue("step", "total").addKeyValue("duration_ms", total / 1e6).log("Bootstrap took {} ms", total / 1e6);
+  }
+
   private static void watch(CountDownLatch latch) {
     try {
       latch.await();
@@ -21,7 +21,21 @@ package org.tybloco.runtime.application;
  * #L%
  */
 
-public record ApplicationCloseables(AutoCloseable closeable, ApplicationCloseables previous) {
+import java.util.Set;
+
+public record ApplicationCloseables(String block, AutoCloseable closeable, Set<String> dependencies, ApplicationCloseables previous) {
+
+  public ApplicationCloseables(AutoCloseable closeable, ApplicationCloseables previous) {
+    this(null, closeable, null, previous);
+  }
+
+  public String name() {
+    return block == null ? String.valueOf(closeable) : block;
+  }
+
+  boolean mustCloseBefore(ApplicationCloseables other) {
+    return dependencies == null || other.dependencies == null || dependencies.contains(other.block);
+  }
 
   @Override
   public int hashCode() {
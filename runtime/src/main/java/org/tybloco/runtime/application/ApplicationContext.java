@@ -22,9 +22,25 @@ package org.tybloco.runtime.application;
  */
 
 import org.tybloco.runtime.exception.ApplicationCloseException;
+import org.tybloco.runtime.exception.CloseTimeoutException;
+import org.tybloco.runtime.util.Settings;
 
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Supplier;
 
@@ -33,11 +49,22 @@ public final class ApplicationContext {
   public final Thread mainThread;
   private final AtomicReference<ApplicationCloseables> closeables = new AtomicReference<>();
   private final ConcurrentHashMap<String, Object> blocks = new ConcurrentHashMap<>(1024, 0.75f);
+  private final ConcurrentHashMap<String, Set<String>> dependencies = new ConcurrentHashMap<>(1024, 0.75f);
   private final ConcurrentHashMap<String, ConcurrentHashMap<String, Object>> outputs = new ConcurrentHashMap<>(1024, 0.75f);
+  private final SlotTable blockSlots;
+  private final SlotTable outputSlots;
+  private final ThreadLocal<ArrayDeque<Set<String>>> creating = ThreadLocal.withInitial(ArrayDeque::new);
+  private final AtomicInteger creations = new AtomicInteger();
   private volatile boolean running = true;
 
+  public ApplicationContext(Thread thread, int blockSlots, int outputSlots) {
+    this.mainThread = thread;
+    this.blockSlots = new SlotTable(blockSlots);
+    this.outputSlots = new SlotTable(outputSlots);
+  }
+
   public ApplicationContext(Thread thread) {
-    mainThread = thread;
+    this(thread, 0, 0);
   }
 
   public ApplicationContext() {
@@ -52,35 +79,266 @@ public final class ApplicationContext {
   public <T> T block(String block) {
     var b = blocks.get(block);
     if (b == null) throw new NoSuchElementException(block);
+    used(block);
     return (T) b;
   }
 
   @SuppressWarnings("unchecked")
   public <T> T block(String block, Supplier<T> supplier) {
-    var b = (T) blocks.computeIfAbsent(block, k -> supplier.get());
-    if (b instanceof AutoCloseable c) {
-      closeables.updateAndGet(o -> new ApplicationCloseables(c, o));
+    var b = blocks.computeIfAbsent(block, k -> {
+      var used = new HashSet<String>();
+      var created = create(supplier, used);
+      return register(block, created, dependencies(block, used));
+    });
+    used(block);
+    return (T) b;
+  }
+
+  @SuppressWarnings("unchecked")
+  public <T> T block(BlockKey<T> key) {
+    var b = blockSlots.get(key.slot());
+    if (b != null) {
+      used(key.name());
+      return (T) b;
     }
-    return b;
+    b = block(key.name());
+    publishBlock(key, b);
+    return (T) b;
+  }
+
+  @SuppressWarnings("unchecked")
+  public <T> T block(BlockKey<T> key, Supplier<? extends T> supplier) {
+    var b = blockSlots.get(key.slot());
+    if (b != null) {
+      used(key.name());
+      return (T) b;
+    }
+    b = block(key.name(), supplier);
+    publishBlock(key, b);
+    return (T) b;
+  }
+
+  private void publishBlock(BlockKey<?> key, Object b) {
+    if (blockSlots.publish(key.slot(), b) && blocks.get(key.name()) != b) {
+      blockSlots.unpublish(key.slot(), b);
+    }
+  }
+
+  private void used(String block) {
+    if (creations.get() > 0) {
+      var used = creating.get().peek();
+      if (used != null) used.add(block);
+    }
+  }
+
+  private <T> T create(Supplier<T> supplier, Set<String> used) {
+    var stack = creating.get();
+    stack.push(used);
+    creations.incrementAndGet();
+    try {
+      return supplier.get();
+    } finally {
+      creations.decrementAndGet();
+      stack.pop();
+    }
+  }
+
+  private Set<String> dependencies(String block, Collection<String> deps) {
+    var transitive = new HashSet<String>(deps);
+    for (var dep : deps) {
+      transitive.addAll(dependencies.getOrDefault(dep, Set.of()));
+    }
+    transitive.remove(block);
+    var blockDependencies = Set.copyOf(transitive);
+    dependencies.put(block, blockDependencies);
+    return blockDependencies;
+  }
+
+  @SuppressWarnings("unchecked")
+  <T> T initBlock(String block, Collection<String> deps, Supplier<T> supplier) {
+    var b = blocks.get(block);
+    if (b != null) return (T) b;
+    var used = new HashSet<String>(deps);
+    var created = create(supplier, used);
+    var old = blocks.putIfAbsent(block, created);
+    if (old != null) {
+      if (created instanceof AutoCloseable c) {
+        try {
+          c.close();
+        } catch (Throwable e) {
+          e.printStackTrace(System.err);
+        }
+      }
+      return (T) old;
+    }
+    return register(block, created, dependencies(block, used));
+  }
+
+  private <T> T register(String name, T block, Set<String> deps) {
+    if (block instanceof AutoCloseable c) {
+      closeables.updateAndGet(o -> new ApplicationCloseables(name, c, deps, o));
+    }
+    return block;
   }
 
   @SuppressWarnings("unchecked")
   public <T> T output(String block, String out, Supplier<T> supplier) {
+    used(block);
     return (T) outputs
       .computeIfAbsent(block, k -> new ConcurrentHashMap<>(8, 0.75f))
       .computeIfAbsent(out, k -> supplier.get());
   }
 
-  public void close() {
+  @SuppressWarnings("unchecked")
+  public <T> T output(OutputKey<T> key, Supplier<? extends T> supplier) {
+    var o = outputSlots.get(key.slot());
+    if (o != null) return (T) o;
+    o = output(key.block(), key.output(), supplier);
+    if (outputSlots.publish(key.slot(), o)) {
+      var outs = outputs.get(key.block());
+      if (outs == null || outs.get(key.output()) != o) outputSlots.unpublish(key.slot(), o);
+    }
+    return (T) o;
+  }
+
+  Set<String> names() {
+    return new HashSet<>(blocks.keySet());
+  }
+
+  public Set<String> affected(Collection<String> names) {
+    var affected = new LinkedHashSet<String>(names);
+    dependencies.forEach((block, deps) -> {
+      for (var name : names) {
+        if (deps.contains(name)) {
+          affected.add(block);
+          break;
+        }
+      }
+    });
+    return affected;
+  }
+
+  public Set<String> evict(Collection<String> names) {
+    var evicted = affected(names);
+    for (var name : evicted) {
+      blockSlots.clear(blocks.remove(name));
+      dependencies.remove(name);
+      var outs = outputs.remove(name);
+      if (outs != null) outs.values().forEach(outputSlots::clear);
+    }
+    var list = new ArrayList<ApplicationCloseables>();
+    closeables.updateAndGet(head -> {
+      list.clear();
+      var kept = new ArrayList<ApplicationCloseables>();
+      for (var c = head; c != null; c = c.previous()) {
+        if (c.block() != null && evicted.contains(c.block())) list.add(c);
+        else kept.add(c);
+      }
+      ApplicationCloseables result = null;
+      for (var c : kept.reversed()) {
+        result = new ApplicationCloseables(c.block(), c.closeable(), c.dependencies(), result);
+      }
+      return result;
+    });
+    drain(list);
+    close(list);
+    return evicted;
+  }
+
+  public List<String> drain() {
     running = false;
-    var closeException = new ApplicationCloseException();
+    var list = new ArrayList<ApplicationCloseables>();
+    for (var c = closeables.get(); c != null; c = c.previous()) {
+      list.add(c);
+    }
+    return drain(list);
+  }
+
+  private List<String> drain(List<ApplicationCloseables> list) {
+    for (var c : list) {
+      if (c.closeable() instanceof Drainable d) d.drain();
+    }
+    var deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(Settings.longSetting("TY_DRAIN_TIMEOUT").orElse(10_000L));
+    var pending = new ArrayList<String>();
+    for (var c : list) {
+      if (c.closeable() instanceof Drainable d) {
+        try {
+          if (!d.awaitDrained(Duration.ofNanos(Math.max(deadline - System.nanoTime(), 0L)))) pending.add(c.name());
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          pending.add(c.name());
+        }
+      }
+    }
+    return pending;
+  }
+
+  public long dropped() {
+    var dropped = 0L;
     for (var c = closeables.get(); c != null; c = c.previous()) {
+      if (c.closeable() instanceof Drainable d) dropped += d.dropped();
+    }
+    return dropped;
+  }
+
+  public void close() {
+    if (running) drain();
+    var list = new ArrayList<ApplicationCloseables>();
+    for (var c = closeables.get(); c != null; c = c.previous()) {
+      list.add(c);
+    }
+    close(list);
+  }
+
+  private void close(List<ApplicationCloseables> list) {
+    var timeout = TimeUnit.MILLISECONDS.toNanos(Settings.longSetting("TY_CLOSE_TIMEOUT").orElse(30_000L));
+    var shutdownTimeout = TimeUnit.MILLISECONDS.toNanos(Settings.longSetting("TY_SHUTDOWN_TIMEOUT").orElse(60_000L));
+    var deadline = System.nanoTime() + shutdownTimeout;
+    var errors = new ConcurrentLinkedQueue<Throwable>();
+    var released = new ArrayList<CompletableFuture<Void>>(list.size());
+    var timedOut = new AtomicIntegerArray(list.size());
+    for (int i = 0; i < list.size(); i++) {
+      var c = list.get(i);
+      var before = new ArrayList<CompletableFuture<Void>>();
+      for (int k = 0; k < i; k++) {
+        if (list.get(k).mustCloseBefore(c)) before.add(released.get(k));
+      }
+      var index = i;
+      var done = new CompletableFuture<Void>();
+      released.add(done);
+      Thread.ofVirtual().name("close-" + c.name()).start(() -> {
+        try {
+          CompletableFuture.allOf(before.toArray(CompletableFuture[]::new)).join();
+          var thread = Thread.ofVirtual().name("closing-" + c.name()).start(() -> {
+            try {
+              c.closeable().close();
+            } catch (Throwable e) {
+              errors.add(e);
+            }
+          });
+          var limit = Math.min(timeout, Math.max(deadline - System.nanoTime(), 0L));
+          if (!thread.join(Duration.ofNanos(limit)) && timedOut.compareAndSet(index, 0, 1)) {
+            var millis = TimeUnit.NANOSECONDS.toMillis(limit < timeout ? shutdownTimeout : timeout);
+            errors.add(new CloseTimeoutException(c.name(), millis));
+          }
+        } catch (Throwable e) {
+          errors.add(e);
+        } finally {
+          done.complete(null);
+        }
+      });
+    }
+    var closeException = new ApplicationCloseException();
+    for (int i = 0; i < released.size(); i++) {
       try {
-        c.closeable().close();
+        released.get(i).get(Math.max(deadline - System.nanoTime(), 0L), TimeUnit.NANOSECONDS);
+      } catch (TimeoutException e) {
+        if (timedOut.compareAndSet(i, 0, 1)) errors.add(new CloseTimeoutException(list.get(i).name(), TimeUnit.NANOSECONDS.toMillis(shutdownTimeout)));
       } catch (Throwable e) {
         closeException.addSuppressed(e);
       }
     }
+    errors.forEach(closeException::addSuppressed);
     if (closeException.getSuppressed().length > 0) throw closeException;
   }
 }
@@ -0,0 +1,190 @@
+package org.tybloco.runtime.application;
+
+/*-
+ * #%L
+ * runtime
+ * %%
+ * Copyright (C) 2023 Montoni
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import org.tybloco.runtime.exception.ApplicationCloseException;
+import org.tybloco.runtime.exception.ReloadException;
+import org.tybloco.runtime.plugins.Plugin;
+import org.tybloco.runtime.plugins.PluginException;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.ServiceLoader;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public final class HotReloader implements AutoCloseable {
+
+  private final ApplicationContext context;
+  private final ClassLoader parent;
+  private final AtomicInteger generation = new AtomicInteger();
+  private final ArrayList<Generation> generations = new ArrayList<>();
+
+  public HotReloader(ApplicationContext context, ClassLoader parent) {
+    this.context = context;
+    this.parent = parent;
+  }
+
+  public HotReloader(ApplicationContext context) {
+    this(context, ApplicationContext.class.getClassLoader());
+  }
+
+  public synchronized Set<String> reload(Collection<String> blocks, Collection<Path> jars) {
+    var evicted = context.affected(blocks);
+    var owners = new ArrayList<Generation>();
+    var orphans = new LinkedHashSet<String>();
+    for (var name : evicted) {
+      if (blocks.contains(name)) continue;
+      var owner = generations.stream().filter(g -> g.blocks.contains(name)).findFirst();
+      if (owner.isEmpty()) orphans.add(name);
+      else if (!owners.contains(owner.get())) owners.add(owner.get());
+    }
+    if (!orphans.isEmpty()) {
+      throw new IllegalStateException("Unable to reload " + blocks + ": dependents " + orphans + " are not owned by a reloaded jar");
+    }
+    var loader = new URLClassLoader("reload-" + generation.incrementAndGet(), urls(jars), parent);
+    ApplicationCloseException closeException = null;
+    try {
+      context.evict(evicted);
+    } catch (ApplicationCloseException e) {
+      closeException = e;
+    }
+    var before = context.names();
+    var recreated = new ArrayList<Set<String>>(owners.size());
+    try {
+      run(loader);
+      for (var owner : owners) {
+        var names = context.names();
+        run(owner.loader);
+        var created = context.names();
+        created.removeAll(names);
+        recreated.add(created);
+      }
+    } catch (Throwable e) {
+      var errors = new ArrayList<Throwable>();
+      var exception = new ReloadException(rollback(loader, before, evicted, errors), e);
+      if (closeException != null) exception.addSuppressed(closeException);
+      errors.forEach(exception::addSuppressed);
+      throw exception;
+    }
+    var loaded = context.names();
+    loaded.removeAll(before);
+    for (var created : recreated) {
+      loaded.removeAll(created);
+    }
+    for (var g : generations) {
+      g.blocks.removeAll(evicted);
+    }
+    for (int i = 0; i < owners.size(); i++) {
+      owners.get(i).blocks.addAll(recreated.get(i));
+    }
+    generations.removeIf(g -> {
+      if (!g.blocks.isEmpty()) return false;
+      close(g.loader);
+      return true;
+    });
+    generations.add(new Generation(loader, loaded));
+    if (closeException != null) throw closeException;
+    return evicted;
+  }
+
+  private Set<String> rollback(URLClassLoader loader, Set<String> before, Set<String> evicted, Collection<Throwable> errors) {
+    var partial = context.names();
+    partial.removeAll(before);
+    try {
+      context.evict(partial);
+    } catch (Throwable e) {
+      errors.add(e);
+    }
+    close(loader);
+    for (var g : generations) {
+      if (!Collections.disjoint(g.blocks, evicted)) {
+        try {
+          run(g.loader);
+        } catch (Throwable e) {
+          errors.add(e);
+        }
+      }
+    }
+    var missing = new LinkedHashSet<String>(evicted);
+    missing.removeAll(context.names());
+    return missing;
+  }
+
+  private void run(ClassLoader loader) {
+    ServiceLoader.load(Plugin.class, loader).stream()
+      .filter(provider -> provider.type().getClassLoader() == loader)
+      .map(provider -> {
+        try {
+          return provider.get();
+        } catch (Throwable e) {
+          throw new PluginException(provider.type(), e);
+        }
+      })
+      .sorted(Comparator.comparingInt(Plugin::getPriority))
+      .forEachOrdered(plugin -> {
+        try {
+          plugin.run(context);
+        } catch (Throwable e) {
+          throw new PluginException(plugin.getClass(), e);
+        }
+      });
+  }
+
+  @Override
+  public synchronized void close() {
+    generations.forEach(g -> close(g.loader));
+    generations.clear();
+  }
+
+  private static URL[] urls(Collection<Path> jars) {
+    return jars.stream()
+      .map(jar -> {
+        try {
+          return jar.toUri().toURL();
+        } catch (MalformedURLException e) {
+          throw new UncheckedIOException(e);
+        }
+      })
+      .toArray(URL[]::new);
+  }
+
+  private static void close(URLClassLoader loader) {
+    if (loader == null) return;
+    try {
+      loader.close();
+    } catch (IOException e) {
+      e.printStackTrace(System.err);
+    }
+  }
+
+  private record Generation(URLClassLoader loader, Set<String> blocks) {}
+}
@@ -0,0 +1,33 @@
+package org.tybloco.runtime.application;
+
+/*-
+ * #%L
+ * runtime
+ * %%
+ * Copyright (C) 2023 Montoni
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import java.util.Objects;
+
+public record OutputKey<T>(int slot, String block, String output) {
+
+  public OutputKey {
+    if (slot < 0) throw new IllegalArgumentException("Negative slot: " + slot);
+    Objects.requireNonNull(block, "block");
+    Objects.requireNonNull(output, "output");
+  }
+}
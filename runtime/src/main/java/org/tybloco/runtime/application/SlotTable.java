@@ -0,0 +1,57 @@
+package org.tybloco.runtime.application;
+
+/*-
+ * #%L
+ * runtime
+ * %%
+ * Copyright (C) 2023 Montoni
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+final class SlotTable {
+
+  private static final VarHandle SLOTS = MethodHandles.arrayElementVarHandle(Object[].class);
+
+  private final Object[] slots;
+
+  SlotTable(int size) {
+    slots = new Object[size];
+  }
+
+  Object get(int slot) {
+    return slot < slots.length ? SLOTS.getAcquire(slots, slot) : null;
+  }
+
+  boolean publish(int slot, Object value) {
+    return slot < slots.length && SLOTS.compareAndSet(slots, slot, null, value);
+  }
+
+  void unpublish(int slot, Object value) {
+    if (slot < slots.length) {
+      SLOTS.compareAndSet(slots, slot, value, null);
+    }
+  }
+
+  void clear(Object value) {
+    if (value == null) return;
+    for (int i = 0; i < slots.length; i++) {
+      SLOTS.compareAndSet(slots, i, value, null);
+    }
+  }
+}
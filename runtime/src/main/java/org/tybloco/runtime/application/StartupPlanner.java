@@ -0,0 +1,166 @@
+package org.tybloco.runtime.application;
+
+/*-
+ * #%L
+ * runtime
+ * %%
+ * Copyright (C) 2023 Montoni
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import org.tybloco.runtime.exception.BlockInitException;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.Supplier;
+
+public final class StartupPlanner {
+
+  private final ApplicationContext context;
+  private final LinkedHashMap<String, Node> nodes = new LinkedHashMap<>();
+
+  public StartupPlanner(ApplicationContext context) {
+    this.context = context;
+  }
+
+  public StartupPlanner add(String block, Supplier<?> supplier) {
+    return add(block, List.of(), supplier);
+  }
+
+  public StartupPlanner add(String block, Collection<String> dependencies, Supplier<?> supplier) {
+    if (nodes.putIfAbsent(block, new Node(block, List.copyOf(dependencies), supplier)) != null) {
+      throw new IllegalArgumentException("Duplicate block: " + block);
+    }
+    return this;
+  }
+
+  public StartupReport start() {
+    var order = validate();
+    var start = System.nanoTime();
+    var timings = new ConcurrentLinkedQueue<StartupReport.BlockTiming>();
+    var completions = new LinkedBlockingQueue<Completion>();
+    var pending = new HashMap<String, Integer>(nodes.size());
+    var dependents = new HashMap<String, List<Node>>(nodes.size());
+    for (var node : order) {
+      pending.put(node.block, node.dependencies.size());
+      for (var dependency : node.dependencies) {
+        dependents.computeIfAbsent(dependency, k -> new ArrayList<>()).add(node);
+      }
+    }
+    var failures = new ArrayList<BlockInitException>();
+    try (var executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("block-init-", 0L).factory())) {
+      var running = 0;
+      for (var node : order) {
+        if (node.dependencies.isEmpty()) {
+          submit(executor, node, start, timings, completions);
+          running++;
+        }
+      }
+      while (running > 0) {
+        Completion completion;
+        try {
+          completion = completions.take();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          failures.add(new BlockInitException("<interrupted>", e));
+          break;
+        }
+        running--;
+        if (completion.error != null) {
+          failures.add(new BlockInitException(completion.node.block, completion.error));
+          continue;
+        }
+        if (!failures.isEmpty()) continue;
+        for (var dependent : dependents.getOrDefault(completion.node.block, List.of())) {
+          if (pending.merge(dependent.block, -1, Integer::sum) == 0) {
+            submit(executor, dependent, start, timings, completions);
+            running++;
+          }
+        }
+      }
+    }
+    if (!failures.isEmpty()) {
+      var failure = failures.getFirst();
+      failures.stream().skip(1L).forEach(failure::addSuppressed);
+      throw failure;
+    }
+    var blocks = timings.stream().sorted(Comparator.comparing(StartupReport.BlockTiming::start)).toList();
+    return new StartupReport(blocks, Duration.ofNanos(System.nanoTime() - start));
+  }
+
+  private void submit(
+    ExecutorService executor,
+    Node node,
+    long start,
+    ConcurrentLinkedQueue<StartupReport.BlockTiming> timings,
+    LinkedBlockingQueue<Completion> completions
+  ) {
+    executor.execute(() -> {
+      var blockStart = System.nanoTime();
+      try {
+        context.initBlock(node.block, node.dependencies, node.supplier);
+        var end = System.nanoTime();
+        var timing = new StartupReport.BlockTiming(
+          node.block,
+          Duration.ofNanos(blockStart - start),
+          Duration.ofNanos(end - blockStart),
+          Thread.currentThread().getName()
+        );
+        timings.add(timing);
+        completions.add(new Completion(node, null));
+      } catch (Throwable e) {
+        completions.add(new Completion(node, e));
+      }
+    });
+  }
+
+  private List<Node> validate() {
+    var order = new ArrayList<Node>(nodes.size());
+    var state = new HashMap<String, Boolean>(nodes.size());
+    for (var node : nodes.values()) {
+      visit(node, state, order, new ArrayDeque<>());
+    }
+    return order;
+  }
+
+  private void visit(Node node, HashMap<String, Boolean> state, ArrayList<Node> order, ArrayDeque<String> path) {
+    var s = state.get(node.block);
+    if (s == Boolean.TRUE) return;
+    path.addLast(node.block);
+    if (s == Boolean.FALSE) {
+      throw new IllegalStateException("Cyclic block dependency: " + String.join(" -> ", path));
+    }
+    state.put(node.block, Boolean.FALSE);
+    for (var dependency : node.dependencies) {
+      var dep = nodes.get(dependency);
+      if (dep == null) {
+        throw new IllegalArgumentException("Unknown dependency " + dependency + " of block " + node.block);
+      }
+      visit(dep, state, order, path);
+    }
+    state.put(node.block, Boolean.TRUE);
+    order.add(node);
+    path.removeLast();
+  }
+
+  private record Node(String block, List<String> dependencies, Supplier<?> supplier) {}
+
+  private record Completion(Node node, Throwable error) {}
+}
@@ -0,0 +1,42 @@
+package org.tybloco.runtime.application.tasks;
+
+/*-
+ * #%L
+ * runtime
+ * %%
+ * Copyright (C) 2023 Montoni
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import org.tybloco.runtime.application.ApplicationContext;
+import org.tybloco.runtime.application.ApplicationTask;
+import org.tybloco.runtime.basic.mx.PinningMonitor;
+import org.tybloco.runtime.util.Settings;
+
+import java.time.Duration;
+
+import static org.tybloco.runtime.basic.error.ErrorConsumers.logErrorConsumer;
+
+public final class PinningMonitorInstaller implements ApplicationTask {
+
+  @Override
+  public void run(ApplicationContext context) throws Exception {
+    if (!Settings.booleanSetting("TY_PINNING_MONITOR").orElse(Boolean.FALSE)) return;
+    var threshold = Settings.durationSetting("TY_PINNING_THRESHOLD").orElse(Duration.ofMillis(20L));
+    var monitor = new PinningMonitor("org.tybloco", "type", "VirtualThreadPinning", threshold, logErrorConsumer("pinning", "Pinning monitor error"));
+    context.block("$pinningMonitor", () -> monitor);
+  }
+}
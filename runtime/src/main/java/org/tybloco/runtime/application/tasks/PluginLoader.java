@@ -21,38 +21,169 @@ package org.tybloco.runtime.application.tasks;
  * #L%
  */
 
+import org.slf4j.LoggerFactory;
 import org.tybloco.runtime.application.ApplicationContext;
 import org.tybloco.runtime.application.ApplicationTask;
 import org.tybloco.runtime.plugins.Plugin;
 import org.tybloco.runtime.plugins.PluginException;
+import org.tybloco.runtime.plugins.PluginIndex;
+import org.tybloco.runtime.util.Settings;
 
-import java.util.Comparator;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.ServiceLoader;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeoutException;
 
 public final class PluginLoader implements ApplicationTask {
 
+  private final ConcurrentLinkedQueue<PluginTiming> timings = new ConcurrentLinkedQueue<>();
+
   @Override
   public void run(ApplicationContext context) {
-    var loader = ServiceLoader.load(Plugin.class);
-    try (var pluginProviderStream = loader.stream()) {
-      pluginProviderStream
-        .map(provider -> {
-          try {
-            return provider.get();
-          } catch (Throwable e) {
-            throw new PluginException(provider.type(), e);
-          }
-        })
-        .sorted(Comparator.comparingInt(Plugin::getPriority))
-        .forEachOrdered(plugin -> {
+    var timeout = Settings.longSetting("TY_PLUGIN_TIMEOUT").orElse(0L);
+    timings.clear();
+    try {
+      var groups = new TreeMap<Integer, List<Candidate>>();
+      for (var candidate : candidates()) {
+        groups.computeIfAbsent(candidate.priority(), k -> new ArrayList<>()).add(candidate);
+      }
+      groups.forEach((priority, candidates) -> runGroup(context, priority, instantiate(candidates), timeout));
+    } finally {
+      report();
+    }
+  }
+
+  private static List<Candidate> candidates() {
+    var classLoader = Thread.currentThread().getContextClassLoader();
+    if (Settings.booleanSetting("TY_PLUGIN_INDEX").orElse(Boolean.TRUE)) {
+      var index = PluginIndex.load(classLoader, Settings.booleanSetting("TY_PLUGIN_SERVICES").orElse(Boolean.FALSE));
+      if (!index.isEmpty()) {
+        return index.stream()
+          .map(entry -> new Candidate(entry.type(), entry.priority(), () -> Class.forName(entry.type(), true, classLoader)
+            .asSubclass(Plugin.class)
+            .getConstructor()
+            .newInstance()
+          ))
+          .toList();
+      }
+    }
+    var loader = ServiceLoader.load(Plugin.class, classLoader);
+    try (var providers = loader.stream()) {
+      return instantiate(providers.map(p -> new Candidate(p.type().getName(), Integer.MAX_VALUE, p::get)).toList()).stream()
+        .map(plugin -> new Candidate(plugin.getClass().getName(), plugin.getPriority(), () -> plugin))
+        .toList();
+    }
+  }
+
+  public List<PluginTiming> timings() {
+    return List.copyOf(timings);
+  }
+
+  private static List<Plugin> instantiate(List<Candidate> candidates) {
+    var futures = new ArrayList<Future<Plugin>>(candidates.size());
+    try (var executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("plugin-init-", 0L).factory())) {
+      for (var candidate : candidates) {
+        futures.add(executor.submit(() -> {
           try {
-            plugin.run(context);
+            return candidate.factory().call();
           } catch (Throwable e) {
-            throw new PluginException(plugin.getClass(), e);
+            throw new PluginException(candidate.type(), e);
           }
-        });
-    } finally {
-      loader.reload();
+        }));
+      }
     }
+    var plugins = new ArrayList<Plugin>(candidates.size());
+    PluginException error = null;
+    for (var future : futures) {
+      try {
+        plugins.add(future.resultNow());
+      } catch (IllegalStateException e) {
+        var ex = (PluginException) future.exceptionNow();
+        if (error == null) error = ex;
+        else error.addSuppressed(ex);
+      }
+    }
+    if (error != null) throw error;
+    return plugins;
   }
+
+  private void runGroup(ApplicationContext context, int priority, List<Plugin> plugins, long timeout) {
+    var grace = Settings.longSetting("TY_PLUGIN_GRACE").orElse(1_000L);
+    var threads = new ArrayList<Thread>(plugins.size());
+    var errors = new ConcurrentLinkedQueue<PluginException>();
+    var starts = new long[plugins.size()];
+    var ends = new long[plugins.size()];
+    for (int i = 0; i < plugins.size(); i++) {
+      var index = i;
+      var plugin = plugins.get(i);
+      starts[i] = System.nanoTime();
+      threads.add(Thread.ofVirtual().name("plugin-" + plugin.getClass().getSimpleName()).start(() -> {
+        try {
+          plugin.run(context);
+        } catch (Throwable e) {
+          errors.add(new PluginException(plugin.getClass(), e));
+        } finally {
+          ends[index] = System.nanoTime();
+        }
+      }));
+    }
+    for (int i = 0; i < plugins.size(); i++) {
+      var plugin = plugins.get(i);
+      var thread = threads.get(i);
+      var timedOut = false;
+      var joined = false;
+      try {
+        if (timeout > 0L) {
+          var left = Math.max(starts[i] + timeout * 1_000_000L - System.nanoTime(), 0L);
+          timedOut = !thread.join(Duration.ofNanos(left));
+          joined = !timedOut;
+        } else {
+          thread.join();
+          joined = true;
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        errors.add(new PluginException(plugin.getClass(), e));
+      }
+      var end = joined ? ends[i] : System.nanoTime();
+      if (timedOut) {
+        errors.add(new PluginException(plugin.getClass(), new TimeoutException("Plugin exceeded " + timeout + " ms")));
+        thread.interrupt();
+        try {
+          thread.join(Duration.ofMillis(grace));
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+      timings.add(new PluginTiming(plugin.getClass().getName(), priority, Duration.ofNanos(end - starts[i]), timedOut));
+    }
+    var error = errors.poll();
+    if (error != null) {
+      errors.forEach(error::addSuppressed);
+      throw error;
+    }
+  }
+
+  private void report() {
+    var logger = LoggerFactory.getLogger("bootstrap");
+    for (var timing : timings) {
+      var ms = timing.duration().toNanos() / 1e6;
+      logger.atInfo()
+        .addKeyValue("plugin", timing.plugin())
+        .addKeyValue("priority", timing.priority())
+        .addKeyValue("duration_ms", ms)
+        .addKeyValue("timed_out", timing.timedOut())
+        .log("Plugin {} took {} ms", timing.plugin(), ms);
+    }
+  }
+
+  private record Candidate(String type, int priority, Callable<Plugin> factory) {}
+
+  public record PluginTiming(String plugin, int priority, Duration duration, boolean timedOut) {}
 }
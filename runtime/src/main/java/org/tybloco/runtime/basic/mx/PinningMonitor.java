@@ -0,0 +1,157 @@
+package org.tybloco.runtime.basic.mx;
+
+/*-
+ * #%L
+ * runtime
+ * %%
+ * Copyright (C) 2023 Montoni
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingStream;
+
+import javax.management.JMException;
+import javax.management.ObjectInstance;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.ToLongFunction;
+
+public final class PinningMonitor implements PinningBean, AutoCloseable {
+
+  static final String EVENT = "jdk.VirtualThreadPinned";
+  private static final int MAX_SITES = 1024;
+  private static final String OTHER = "<other>";
+
+  private final ConcurrentHashMap<String, Site> sites = new ConcurrentHashMap<>(64, 0.5f);
+  private final LongAdder count = new LongAdder();
+  private final AtomicLong maxDuration = new AtomicLong();
+  private final RecordingStream stream;
+  private final ObjectInstance instance;
+
+  public PinningMonitor(String domain, String key, String value, Duration threshold, Consumer<? super Throwable> onError) throws JMException {
+    var objectName = new ObjectName(domain, key, value);
+    var server = ManagementFactory.getPlatformMBeanServer();
+    this.stream = new RecordingStream();
+    try {
+      stream.enable(EVENT).withThreshold(threshold).withStackTrace();
+      stream.onEvent(EVENT, this::onEvent);
+      stream.onError(onError::accept);
+      this.instance = server.registerMBean(this, objectName);
+    } catch (Throwable e) {
+      stream.close();
+      throw e;
+    }
+    stream.startAsync();
+  }
+
+  @Override
+  public long getCount() {
+    return count.sum();
+  }
+
+  @Override
+  public long getMaxDurationNanos() {
+    return maxDuration.get();
+  }
+
+  @Override
+  public Map<String, Long> getSiteCounts() {
+    return sites(s -> s.count.sum());
+  }
+
+  @Override
+  public Map<String, Long> getSiteMaxDurationNanos() {
+    return sites(s -> s.maxDuration.get());
+  }
+
+  @Override
+  public void reset() {
+    sites.clear();
+    count.reset();
+    maxDuration.set(0L);
+  }
+
+  private Map<String, Long> sites(ToLongFunction<Site> f) {
+    var map = new TreeMap<String, Long>();
+    sites.forEach((k, v) -> map.put(k, f.applyAsLong(v)));
+    return map;
+  }
+
+  void onEvent(RecordedEvent event) {
+    var nanos = event.getDuration().toNanos();
+    count.increment();
+    maxDuration.accumulateAndGet(nanos, Math::max);
+    var site = site(event);
+    var s = sites.get(site);
+    if (s == null) {
+      s = sites.computeIfAbsent(sites.size() < MAX_SITES ? site : OTHER, k -> new Site());
+    }
+    s.count.increment();
+    s.maxDuration.accumulateAndGet(nanos, Math::max);
+  }
+
+  static String site(RecordedEvent event) {
+    var thread = event.getThread();
+    var threadName = thread == null || thread.getJavaName() == null ? "?" : threadGroup(thread.getJavaName(), thread.isVirtual());
+    var frame = "?";
+    var stackTrace = event.getStackTrace();
+    if (stackTrace != null) {
+      for (var f : stackTrace.getFrames()) {
+        var type = f.getMethod().getType().getName();
+        if (type.startsWith("java.") || type.startsWith("jdk.") || type.startsWith("sun.")) {
+          continue;
+        }
+        frame = type + "." + f.getMethod().getName() + ":" + f.getLineNumber();
+        break;
+      }
+    }
+    return threadName + " " + frame;
+  }
+
+  static String threadGroup(String threadName, boolean virtual) {
+    var end = threadName.length();
+    while (end > 0 && Character.isDigit(threadName.charAt(end - 1))) end--;
+    if (virtual) {
+      var keyed = threadName.lastIndexOf('_', end - 1);
+      if (keyed >= 0) end = keyed + 1;
+    }
+    return threadName.substring(0, end);
+  }
+
+  @Override
+  public void close() throws Exception {
+    try {
+      stream.close();
+    } finally {
+      var server = ManagementFactory.getPlatformMBeanServer();
+      server.unregisterMBean(instance.getObjectName());
+    }
+  }
+
+  private static final class Site {
+
+    private final LongAdder count = new LongAdder();
+    private final AtomicLong maxDuration = new AtomicLong();
+  }
+}
@@ -22,20 +22,31 @@ package org.tybloco.runtime.basic.sink;
  */
 
 import org.tybloco.runtime.application.ApplicationContext;
+import org.tybloco.runtime.application.Drainable;
 import org.tybloco.runtime.basic.Break;
 import org.tybloco.runtime.basic.Startable;
 
+import java.time.Duration;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 
 import static java.util.concurrent.locks.LockSupport.parkNanos;
 
-abstract class AbstractSink implements Startable, AutoCloseable {
+abstract class AbstractSink implements Startable, Drainable, AutoCloseable {
+
+  private static final int IDLE = 0;
+  private static final int BUSY = 1;
+  private static final int STOPPED = 2;
 
   final ApplicationContext context;
   final Thread thread;
+  final AtomicLong dropped = new AtomicLong();
+  private final AtomicInteger phase = new AtomicInteger();
+  private volatile boolean draining;
 
   AbstractSink(ApplicationContext context, ThreadFactory tf) {
     this.context = context;
@@ -61,6 +72,57 @@ abstract class AbstractSink implements Startable, AutoCloseable {
     thread.start();
   }
 
+  <E> Consumer<E> guard(Consumer<E> consumer) {
+    return e -> {
+      enter();
+      try {
+        consumer.accept(e);
+      } catch (Throwable x) {
+        rejected(x);
+        throw x;
+      }
+      exit();
+    };
+  }
+
+  <K, V> BiConsumer<K, V> guard(BiConsumer<K, V> consumer) {
+    return (k, v) -> {
+      enter();
+      try {
+        consumer.accept(k, v);
+      } catch (Throwable x) {
+        rejected(x);
+        throw x;
+      }
+      exit();
+    };
+  }
+
+  private void rejected(Throwable x) {
+    phase.compareAndSet(BUSY, IDLE);
+    if (x != Break.BREAK) dropped.incrementAndGet();
+  }
+
+  private void enter() {
+    if (!phase.compareAndSet(IDLE, BUSY)) {
+      synchronized (phase) {
+        Thread.interrupted();
+      }
+    }
+  }
+
+  private void exit() {
+    if (!phase.compareAndSet(BUSY, IDLE) || draining || !context.isRunning()) throw Break.BREAK;
+  }
+
+  boolean finish() {
+    synchronized (phase) {
+      if (phase.getAndSet(STOPPED) != STOPPED) return false;
+      Thread.interrupted();
+      return true;
+    }
+  }
+
   void waitForState(AtomicLong state, Consumer<InterruptedException> consumer) {
     var thread = Thread.currentThread();
     while (state.get() > 0L) {
@@ -82,6 +144,25 @@ abstract class AbstractSink implements Startable, AutoCloseable {
       .ifPresent(consumer);
   }
 
+  @Override
+  public void drain() {
+    draining = true;
+    synchronized (phase) {
+      if (phase.compareAndSet(IDLE, STOPPED)) thread.interrupt();
+    }
+  }
+
+  @Override
+  public boolean awaitDrained(Duration timeout) throws InterruptedException {
+    if (thread.getState() == Thread.State.NEW) return true;
+    return thread.join(timeout);
+  }
+
+  @Override
+  public long dropped() {
+    return dropped.get();
+  }
+
   @Override
   public void close() throws Exception {
     if (thread.isAlive()) {
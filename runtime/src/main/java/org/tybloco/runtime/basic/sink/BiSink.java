@@ -74,8 +74,9 @@ public final class BiSink<K, V> extends AbstractSink {
   void run() {
     var exceptions = new ConcurrentLinkedQueue<Throwable>();
     var state = new AtomicLong();
+    Throwable error = null;
     try {
-      source.apply(context, (k, v) -> {
+      source.apply(context, guard((K k, V v) -> {
         state.incrementAndGet();
         try {
           var executor = executors.executorByKey(k);
@@ -93,12 +94,14 @@ public final class BiSink<K, V> extends AbstractSink {
           throw x;
         }
         if (!exceptions.isEmpty()) throw Break.BREAK;
-      });
+      }));
     } catch (Break ignore) {
     } catch (Throwable e) {
-      exceptions.add(e);
+      error = e;
     }
+    if (!finish() && error != null) exceptions.add(error);
     waitForState(state, exceptions::add);
+    dropped.addAndGet(state.get());
     processErrors(exceptions, onError);
   }
 }
@@ -63,11 +63,13 @@ public final class SequentialBiSink<K, V> extends AbstractSink {
 
   @Override
   void run() {
+    Throwable error = null;
     try {
-      source.apply(context, consumer);
+      source.apply(context, guard(consumer));
     } catch (Break ignore) {
     } catch (Throwable e) {
-      onError.accept(e);
+      error = e;
     }
+    if (!finish() && error != null) onError.accept(error);
   }
 }
@@ -62,11 +62,13 @@ public final class SequentialSink<E> extends AbstractSink {
 
   @Override
   void run() {
+    Throwable error = null;
     try {
-      source.apply(context, consumer);
+      source.apply(context, guard(consumer));
     } catch (Break ignore) {
     } catch (Throwable e) {
-      onError.accept(e);
+      error = e;
     }
+    if (!finish() && error != null) onError.accept(error);
   }
 }
@@ -0,0 +1,104 @@
+package org.tybloco.runtime.basic.thread;
+
+/*-
+ * #%L
+ * runtime
+ * %%
+ * Copyright (C) 2023 Montoni
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import java.lang.foreign.*;
+import java.lang.invoke.MethodHandle;
+import java.util.BitSet;
+import java.util.Locale;
+
+import static java.lang.foreign.ValueLayout.*;
+
+final class Affinity {
+
+  private static final int MASK_BYTES = 128;
+  private static final MethodHandle SET_AFFINITY = lookup("sched_setaffinity");
+  private static final MethodHandle GET_AFFINITY = lookup("sched_getaffinity");
+
+  private Affinity() {
+  }
+
+  static boolean supported() {
+    return SET_AFFINITY != null && GET_AFFINITY != null;
+  }
+
+  static boolean pin(BitSet cpus) {
+    if (SET_AFFINITY == null || cpus.isEmpty()) return false;
+    var words = cpus.toLongArray();
+    try (var arena = Arena.ofConfined()) {
+      var mask = arena.allocate(Math.max(MASK_BYTES, words.length * 8L), 8L);
+      for (int i = 0; i < words.length; i++) {
+        mask.setAtIndex(JAVA_LONG, i, words[i]);
+      }
+      return (int) SET_AFFINITY.invokeExact(0, mask.byteSize(), mask) == 0;
+    } catch (Throwable e) {
+      return false;
+    }
+  }
+
+  static BitSet current() {
+    if (GET_AFFINITY == null) return new BitSet();
+    try (var arena = Arena.ofConfined()) {
+      var mask = arena.allocate(MASK_BYTES, 8L);
+      if ((int) GET_AFFINITY.invokeExact(0, mask.byteSize(), mask) != 0) return new BitSet();
+      var words = new long[MASK_BYTES / 8];
+      for (int i = 0; i < words.length; i++) {
+        words[i] = mask.getAtIndex(JAVA_LONG, i);
+      }
+      return BitSet.valueOf(words);
+    } catch (Throwable e) {
+      return new BitSet();
+    }
+  }
+
+  static BitSet parse(String cpus) {
+    var set = new BitSet();
+    for (var part : cpus.split(",")) {
+      var p = part.strip();
+      if (p.isEmpty()) continue;
+      var dash = p.indexOf('-');
+      try {
+        if (dash < 0) {
+          set.set(Integer.parseInt(p));
+        } else {
+          set.set(Integer.parseInt(p.substring(0, dash).strip()), Integer.parseInt(p.substring(dash + 1).strip()) + 1);
+        }
+      } catch (NumberFormatException | IndexOutOfBoundsException e) {
+        throw new IllegalArgumentException("Invalid CPU list: " + cpus, e);
+      }
+    }
+    return set;
+  }
+
+  private static MethodHandle lookup(String function) {
+    if (!System.getProperty("os.name", "").toLowerCase(Locale.ROOT).contains("linux")) return null;
+    try {
+      var linker = Linker.nativeLinker();
+      return linker.defaultLookup()
+        .find(function)
+        .map(s -> linker.downcallHandle(s, FunctionDescriptor.of(JAVA_INT, JAVA_INT, JAVA_LONG, ADDRESS)))
+        .orElse(null);
+    } catch (Throwable e) {
+      return null;
+    }
+  }
+}
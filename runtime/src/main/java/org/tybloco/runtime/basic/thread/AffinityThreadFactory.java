@@ -0,0 +1,110 @@
+package org.tybloco.runtime.basic.thread;
+
+/*-
+ * #%L
+ * runtime
+ * %%
+ * Copyright (C) 2023 Montoni
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import org.jetbrains.annotations.NotNull;
+
+import java.lang.Thread.UncaughtExceptionHandler;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public final class AffinityThreadFactory implements ThreadFactory {
+
+  private static final ThreadLocal<MemorySegment> SCRATCH = new ThreadLocal<>();
+  private static final ThreadLocal<Boolean> PINNED = new ThreadLocal<>();
+
+  private final AtomicInteger counter = new AtomicInteger();
+  private final ThreadGroup group;
+  private final String pattern;
+  private final boolean daemon;
+  private final UncaughtExceptionHandler exceptionHandler;
+  private final BitSet[] cpuSets;
+  private final long scratchSize;
+
+  public AffinityThreadFactory(
+    ThreadGroup group,
+    String pattern,
+    boolean daemon,
+    UncaughtExceptionHandler exceptionHandler,
+    String cpuSets,
+    long scratchSize
+  ) {
+    this.group = group;
+    this.pattern = pattern;
+    this.daemon = daemon;
+    this.exceptionHandler = exceptionHandler;
+    this.cpuSets = Arrays.stream(cpuSets.split(";"))
+      .filter(s -> !s.isBlank())
+      .map(Affinity::parse)
+      .filter(s -> !s.isEmpty())
+      .toArray(BitSet[]::new);
+    this.scratchSize = scratchSize;
+  }
+
+  public static boolean isSupported() {
+    return Affinity.supported();
+  }
+
+  public static boolean isPinned() {
+    return PINNED.get() == Boolean.TRUE;
+  }
+
+  public static MemorySegment scratch() {
+    var scratch = SCRATCH.get();
+    return scratch == null ? MemorySegment.NULL : scratch;
+  }
+
+  @Override
+  public Thread newThread(@NotNull Runnable r) {
+    var index = counter.getAndIncrement();
+    var cpus = cpuSets.length == 0 ? null : cpuSets[index % cpuSets.length];
+    var thread = new Thread(group, () -> run(cpus, r), pattern.formatted(index));
+    thread.setDaemon(daemon);
+    thread.setUncaughtExceptionHandler(exceptionHandler);
+    return thread;
+  }
+
+  private void run(BitSet cpus, Runnable task) {
+    PINNED.set(cpus != null && Affinity.pin(cpus));
+    if (scratchSize <= 0L) {
+      task.run();
+      return;
+    }
+    try (var arena = Arena.ofConfined()) {
+      var scratch = arena.allocate(scratchSize, 64L);
+      scratch.fill((byte) 0);
+      SCRATCH.set(scratch);
+      task.run();
+    } finally {
+      SCRATCH.remove();
+    }
+  }
+
+  @Override
+  public String toString() {
+    return pattern;
+  }
+}
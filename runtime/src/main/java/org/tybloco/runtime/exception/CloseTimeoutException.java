@@ -0,0 +1,32 @@
+package org.tybloco.runtime.exception;
+
+/*-
+ * #%L
+ * runtime
+ * %%
+ * Copyright (C) 2023 Montoni
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+public final class CloseTimeoutException extends RuntimeException {
+
+  public final String resource;
+
+  public CloseTimeoutException(String resource, long timeoutMillis) {
+    super("Close of [" + resource + "] exceeded " + timeoutMillis + " ms", null, true, false);
+    this.resource = resource;
+  }
+}
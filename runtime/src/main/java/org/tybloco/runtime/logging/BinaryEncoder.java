@@ -0,0 +1,244 @@
+package org.tybloco.runtime.logging;
+
+/*-
+ * #%L
+ * runtime
+ * %%
+ * Copyright (C) 2023 Montoni
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import org.slf4j.Marker;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.SQLException;
+import java.util.HashMap;
+
+final class BinaryEncoder implements LogEncoder {
+
+  static final byte[] MAGIC = {'T', 'Y', 'L', 'B'};
+  static final int VERSION = 1;
+  static final int DEFINE = 1;
+  static final int RECORD = 2;
+
+  static final int NULL = 0;
+  static final int FALSE = 1;
+  static final int TRUE = 2;
+  static final int LONG = 3;
+  static final int DOUBLE = 4;
+  static final int NUMBER = 5;
+  static final int STRING = 6;
+
+  static final int TRACE = 1;
+  static final int HASH = 2;
+
+  private final HashMap<String, Integer> dictionary = new HashMap<>(256, 0.5f);
+  private final HostContext context;
+  private final Timestamps timestamps;
+  private final StackTraces stackTraces;
+  private final int segmentRecords;
+  private int records = -1;
+  private long lastTime;
+
+  BinaryEncoder(HostContext context, Timestamps timestamps, StackTraces stackTraces, int segmentRecords) {
+    this.context = context;
+    this.timestamps = timestamps;
+    this.stackTraces = stackTraces;
+    this.segmentRecords = segmentRecords;
+  }
+
+  @Override
+  public void encode(LogRecord record, FileBuffer buffer) {
+    if (records < 0 || (segmentRecords > 0 && records >= segmentRecords)) {
+      writeHeader(buffer);
+    }
+    records++;
+    define(buffer, record);
+    buffer.writeByte(RECORD);
+    buffer.writeZigZag(record.time() - lastTime);
+    lastTime = record.time();
+    buffer.writeByte(record.level().ordinal());
+    buffer.writeVarLong(dictionary.get(record.logger()));
+    buffer.writeVarLong(record.threadId());
+    buffer.writeVarLong(dictionary.get(record.threadName()));
+    buffer.writeUtf8(record.msg());
+    writeLabels(buffer, record);
+    writeKeyValues(buffer, record);
+    writeTags(buffer, record);
+    writeError(buffer, record.throwable());
+  }
+
+  @Override
+  public void reset() {
+    records = -1;
+  }
+
+  private void writeHeader(FileBuffer buffer) {
+    dictionary.clear();
+    records = 0;
+    lastTime = 0L;
+    for (var b : MAGIC) {
+      buffer.writeByte(b);
+    }
+    buffer.writeByte(VERSION);
+    buffer.writeByte(timestamps.micros() ? 1 : 0);
+    buffer.writeVarLong(context.pid);
+    buffer.writeUtf8(context.users.getFirst());
+  }
+
+  private void define(FileBuffer buffer, LogRecord record) {
+    define(buffer, record.logger());
+    define(buffer, record.threadName());
+    var mdc = record.mdc();
+    for (int i = 0, l = mdc.size(); i < l; i++) {
+      define(buffer, mdc.key(i));
+    }
+    for (var kv : record.keyValues()) {
+      if (kv.key != null) define(buffer, kv.key);
+    }
+    for (var marker : record.markers()) {
+      defineMarker(buffer, marker);
+    }
+    if (record.throwable() != null) {
+      define(buffer, record.throwable().getClass().getName());
+    }
+  }
+
+  private void defineMarker(FileBuffer buffer, Marker marker) {
+    define(buffer, marker.getName());
+    for (var it = marker.iterator(); it.hasNext(); ) {
+      defineMarker(buffer, it.next());
+    }
+  }
+
+  private void define(FileBuffer buffer, String value) {
+    if (dictionary.containsKey(value)) return;
+    var id = dictionary.size();
+    dictionary.put(value, id);
+    buffer.writeByte(DEFINE);
+    buffer.writeVarLong(id);
+    buffer.writeUtf8(value);
+  }
+
+  private void writeLabels(FileBuffer buffer, LogRecord record) {
+    var mdc = record.mdc();
+    buffer.writeVarLong(mdc.size());
+    for (int i = 0, l = mdc.size(); i < l; i++) {
+      buffer.writeVarLong(dictionary.get(mdc.key(i)));
+      buffer.writeUtf8(mdc.value(i));
+    }
+  }
+
+  private void writeKeyValues(FileBuffer buffer, LogRecord record) {
+    var keyValues = record.keyValues();
+    var count = 0;
+    for (var kv : keyValues) {
+      if (kv.key != null) count++;
+    }
+    buffer.writeVarLong(count);
+    for (var kv : keyValues) {
+      if (kv.key == null) continue;
+      buffer.writeVarLong(dictionary.get(kv.key));
+      switch (kv.value) {
+        case null -> buffer.writeByte(NULL);
+        case Boolean v -> buffer.writeByte(v ? TRUE : FALSE);
+        case Integer v -> writeLong(buffer, v);
+        case Long v -> writeLong(buffer, v);
+        case Short v -> writeLong(buffer, v);
+        case Byte v -> writeLong(buffer, v);
+        case Double v when Double.isFinite(v) -> writeDouble(buffer, v);
+        case Float v when Float.isFinite(v) -> writeDouble(buffer, v);
+        case BigInteger v -> writeString(buffer, NUMBER, v.toString());
+        case BigDecimal v -> writeString(buffer, NUMBER, v.toString());
+        default -> writeString(buffer, STRING, String.valueOf(kv.value));
+      }
+    }
+  }
+
+  private static void writeLong(FileBuffer buffer, long v) {
+    buffer.writeByte(LONG);
+    buffer.writeZigZag(v);
+  }
+
+  private static void writeDouble(FileBuffer buffer, double v) {
+    buffer.writeByte(DOUBLE);
+    buffer.writeFixedLong(Double.doubleToRawLongBits(v));
+  }
+
+  private static void writeString(FileBuffer buffer, int type, String v) {
+    buffer.writeByte(type);
+    buffer.writeUtf8(v);
+  }
+
+  private void writeTags(FileBuffer buffer, LogRecord record) {
+    var count = 0;
+    for (var marker : record.markers()) {
+      count += count(marker);
+    }
+    buffer.writeVarLong(count);
+    for (var marker : record.markers()) {
+      writeTag(buffer, marker);
+    }
+  }
+
+  private static int count(Marker marker) {
+    var count = 1;
+    for (var it = marker.iterator(); it.hasNext(); ) {
+      count += count(it.next());
+    }
+    return count;
+  }
+
+  private void writeTag(FileBuffer buffer, Marker marker) {
+    buffer.writeVarLong(dictionary.get(marker.getName()));
+    for (var it = marker.iterator(); it.hasNext(); ) {
+      writeTag(buffer, it.next());
+    }
+  }
+
+  private void writeError(FileBuffer buffer, Throwable error) {
+    if (error == null) {
+      buffer.writeByte(0);
+      return;
+    }
+    buffer.writeByte(1);
+    buffer.writeUtf8(error.getMessage());
+    buffer.writeVarLong(dictionary.get(error.getClass().getName()));
+    if (error instanceof SQLException e) {
+      buffer.writeByte(1);
+      buffer.writeZigZag(e.getErrorCode());
+      buffer.writeUtf8(e.getSQLState());
+    } else {
+      buffer.writeByte(0);
+    }
+    var fingerprint = 0L;
+    var flags = TRACE;
+    if (stackTraces.dedup()) {
+      fingerprint = stackTraces.fingerprint(error);
+      flags = stackTraces.full(fingerprint) ? TRACE | HASH : HASH;
+    }
+    buffer.writeByte(flags);
+    if ((flags & TRACE) != 0) {
+      var position = buffer.reserve(5);
+      stackTraces.render(buffer.rawText, error);
+      buffer.patchVarLong(position, 5, buffer.position() - position - 5 + 1L);
+    }
+    if ((flags & HASH) != 0) {
+      buffer.writeFixedLong(fingerprint);
+    }
+  }
+}
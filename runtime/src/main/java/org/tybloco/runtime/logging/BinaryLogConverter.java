@@ -0,0 +1,219 @@
+package org.tybloco.runtime.logging;
+
+/*-
+ * #%L
+ * runtime
+ * %%
+ * Copyright (C) 2023 Montoni
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import org.slf4j.Marker;
+import org.slf4j.event.KeyValuePair;
+import org.slf4j.event.Level;
+import org.tybloco.runtime.util.Settings;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.tybloco.runtime.logging.BinaryEncoder.*;
+
+public final class BinaryLogConverter implements Closeable {
+
+  private final ArrayList<String> dictionary = new ArrayList<>(256);
+  private final FastMarkerFactory markerFactory = new FastMarkerFactory();
+  private final StackTraces stackTraces = new StackTraces(0, 0, 0L);
+  private final OutputStream outputStream;
+  private final FileBuffer buffer;
+  private JsonEncoder encoder;
+  private long lastTime;
+
+  public BinaryLogConverter(OutputStream outputStream) {
+    this.outputStream = outputStream;
+    this.buffer = new FileBuffer(Settings.sizeSetting("TY_MAX_LOG_RECORD_SIZE").orElse(1 << 20));
+  }
+
+  public static void main(String... args) throws IOException {
+    var out = new BufferedOutputStream(new FileOutputStream(FileDescriptor.out), 1 << 16);
+    try (var converter = new BinaryLogConverter(out)) {
+      if (args.length == 0) {
+        converter.convert(System.in);
+      } else {
+        for (var arg : args) {
+          try (var in = Files.newInputStream(Path.of(arg))) {
+            converter.convert(in);
+          }
+        }
+      }
+    }
+    out.flush();
+  }
+
+  public void convert(InputStream inputStream) throws IOException {
+    var in = new DataInputStream(new BufferedInputStream(inputStream, 1 << 16));
+    while (true) {
+      var tag = in.read();
+      switch (tag) {
+        case -1 -> {
+          return;
+        }
+        case 'T' -> readHeader(in);
+        case DEFINE -> readDefinition(in);
+        case RECORD -> write(readRecord(in));
+        default -> throw new StreamCorruptedException("Unexpected tag: " + tag);
+      }
+    }
+  }
+
+  private void readHeader(DataInputStream in) throws IOException {
+    for (int i = 1; i < MAGIC.length; i++) {
+      if (in.readUnsignedByte() != MAGIC[i]) throw new StreamCorruptedException("Invalid segment header");
+    }
+    var version = in.readUnsignedByte();
+    if (version != VERSION) throw new StreamCorruptedException("Unsupported version: " + version);
+    var micros = in.readUnsignedByte() != 0;
+    var pid = readVarLong(in);
+    var user = readUtf8(in);
+    var context = new HostContext(List.of(), List.of(), user == null ? List.of() : List.of(user), pid);
+    encoder = new JsonEncoder(context, new Timestamps(micros), stackTraces);
+    dictionary.clear();
+    lastTime = 0L;
+  }
+
+  private void readDefinition(DataInputStream in) throws IOException {
+    var id = readVarLong(in);
+    if (id != dictionary.size()) throw new StreamCorruptedException("Unexpected dictionary id: " + id);
+    dictionary.add(readUtf8(in));
+  }
+
+  private LogRecord readRecord(DataInputStream in) throws IOException {
+    if (encoder == null) throw new StreamCorruptedException("No segment header");
+    var time = lastTime + zigZag(readVarLong(in));
+    lastTime = time;
+    var level = Level.values()[in.readUnsignedByte()];
+    var logger = lookup(in);
+    var threadId = readVarLong(in);
+    var threadName = lookup(in);
+    var msg = readUtf8(in);
+    var mdc = readLabels(in);
+    var keyValues = readKeyValues(in);
+    var markers = readTags(in);
+    var error = readError(in);
+    return new LogRecord(level, threadId, threadName, time, logger, markers, msg, null, keyValues, mdc, MDCMap.empty(), error);
+  }
+
+  private MDCMap<String> readLabels(DataInputStream in) throws IOException {
+    var count = readVarLong(in);
+    if (count == 0L) return MDCMap.empty();
+    var map = new TreeMap<String, String>();
+    for (long i = 0L; i < count; i++) {
+      map.put(lookup(in), readUtf8(in));
+    }
+    return MDCMap.of(map);
+  }
+
+  private List<KeyValuePair> readKeyValues(DataInputStream in) throws IOException {
+    var count = readVarLong(in);
+    if (count == 0L) return List.of();
+    var keyValues = new ArrayList<KeyValuePair>((int) count);
+    for (long i = 0L; i < count; i++) {
+      var key = lookup(in);
+      var type = in.readUnsignedByte();
+      var value = switch (type) {
+        case NULL -> null;
+        case FALSE -> Boolean.FALSE;
+        case TRUE -> Boolean.TRUE;
+        case LONG -> zigZag(readVarLong(in));
+        case DOUBLE -> Double.longBitsToDouble(in.readLong());
+        case NUMBER -> new BigDecimal(readUtf8(in));
+        case STRING -> readUtf8(in);
+        default -> throw new StreamCorruptedException("Unexpected value type: " + type);
+      };
+      keyValues.add(new KeyValuePair(key, value));
+    }
+    return keyValues;
+  }
+
+  private List<Marker> readTags(DataInputStream in) throws IOException {
+    var count = readVarLong(in);
+    if (count == 0L) return List.of();
+    var markers = new ArrayList<Marker>((int) count);
+    for (long i = 0L; i < count; i++) {
+      markers.add(markerFactory.getDetachedMarker(lookup(in)));
+    }
+    return markers;
+  }
+
+  private DecodedError readError(DataInputStream in) throws IOException {
+    if (in.readUnsignedByte() == 0) return null;
+    var message = readUtf8(in);
+    var type = lookup(in);
+    var sql = in.readUnsignedByte() != 0;
+    var errorCode = sql ? (int) zigZag(readVarLong(in)) : 0;
+    var sqlState = sql ? readUtf8(in) : null;
+    var flags = in.readUnsignedByte();
+    var stackTrace = (flags & TRACE) != 0 ? readUtf8(in) : null;
+    var hasFingerprint = (flags & HASH) != 0;
+    var fingerprint = hasFingerprint ? in.readLong() : 0L;
+    return new DecodedError(message, type, sql, errorCode, sqlState, stackTrace, hasFingerprint, fingerprint);
+  }
+
+  private void write(LogRecord record) throws IOException {
+    try {
+      encoder.encode(record, buffer);
+      buffer.rewind(outputStream);
+    } finally {
+      buffer.reset();
+    }
+  }
+
+  private String lookup(DataInputStream in) throws IOException {
+    var id = readVarLong(in);
+    if (id < 0L || id >= dictionary.size()) throw new StreamCorruptedException("Unknown dictionary id: " + id);
+    return dictionary.get((int) id);
+  }
+
+  private static String readUtf8(DataInputStream in) throws IOException {
+    var len = readVarLong(in);
+    if (len == 0L) return null;
+    var bytes = new byte[Math.toIntExact(len - 1L)];
+    in.readFully(bytes);
+    return new String(bytes, UTF_8);
+  }
+
+  private static long readVarLong(DataInputStream in) throws IOException {
+    var result = 0L;
+    for (int shift = 0; shift < 64; shift += 7) {
+      var b = in.readUnsignedByte();
+      result |= (long) (b & 0x7F) << shift;
+      if ((b & 0x80) == 0) return result;
+    }
+    throw new StreamCorruptedException("Malformed varint");
+  }
+
+  private static long zigZag(long v) {
+    return (v >>> 1) ^ -(v & 1L);
+  }
+
+  @Override
+  public void close() {
+    buffer.close();
+  }
+}
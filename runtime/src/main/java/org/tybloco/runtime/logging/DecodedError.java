@@ -0,0 +1,54 @@
+package org.tybloco.runtime.logging;
+
+/*-
+ * #%L
+ * runtime
+ * %%
+ * Copyright (C) 2023 Montoni
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+record DecodedError(String message, String type, boolean sql, int errorCode, String sqlState, String stackTrace, boolean hasFingerprint,
+                   long fingerprint) {
+
+  void writeTo(FileBuffer buffer) {
+    if (message != null) {
+      buffer.writePair("error.message", message);
+      buffer.write(',');
+    }
+    buffer.writeSafePair("error.type", type);
+    buffer.write(',');
+    if (sql) {
+      buffer.writePair("error.id", errorCode);
+      buffer.write(',');
+      buffer.writePair("error.code", sqlState);
+      buffer.write(',');
+    }
+    if (stackTrace != null) {
+      buffer.writePair("error.stack_trace", stackTrace);
+      if (hasFingerprint) {
+        buffer.write(',');
+      }
+    }
+    if (hasFingerprint) {
+      buffer.writeKey("error.stack_trace_hash");
+      buffer.write(':');
+      buffer.write('"');
+      buffer.writeRaw(Long.toHexString(fingerprint));
+      buffer.write('"');
+    }
+  }
+}
@@ -24,25 +24,26 @@ package org.tybloco.runtime.logging;
 import org.slf4j.spi.MDCAdapter;
 
 import java.util.*;
+import java.util.concurrent.Callable;
 
 public class FastMDCAdapter implements MDCAdapter {
 
-  final InheritableThreadLocal<TreeMap<String, String>> map = new InheritableThreadLocal<>() {
+  final InheritableThreadLocal<MDCMap<String>> map = new InheritableThreadLocal<>() {
     @Override
-    protected TreeMap<String, String> initialValue() {
-      return new TreeMap<>();
+    protected MDCMap<String> initialValue() {
+      return MDCMap.empty();
     }
 
     @Override
-    protected TreeMap<String, String> childValue(TreeMap<String, String> parentValue) {
-      return parentValue == null ? new TreeMap<>() : new TreeMap<>(parentValue);
+    protected MDCMap<String> childValue(MDCMap<String> parentValue) {
+      return parentValue == null ? MDCMap.empty() : parentValue;
     }
   };
-  final ThreadLocal<TreeMap<String, LinkedList<String>>> queues = ThreadLocal.withInitial(TreeMap::new);
+  final ThreadLocal<MDCMap<Stack>> queues = ThreadLocal.withInitial(MDCMap::empty);
 
   @Override
   public void put(String key, String val) {
-    map.get().put(key, val);
+    map.set(map.get().with(key, val));
   }
 
   @Override
@@ -52,33 +53,58 @@ public class FastMDCAdapter implements MDCAdapter {
 
   @Override
   public void remove(String key) {
-    map.get().remove(key);
+    map.set(map.get().without(key));
   }
 
   @Override
   public void clear() {
-    map.get().clear();
+    map.set(MDCMap.empty());
   }
 
   @Override
   public Map<String, String> getCopyOfContextMap() {
-    return new TreeMap<>(map.get());
+    return map.get().toTreeMap();
   }
 
   @Override
   public void setContextMap(Map<String, String> contextMap) {
-    var m = map.get();
-    m.clear();
-    if (contextMap != null) {
-      m.putAll(contextMap);
+    map.set(MDCMap.of(contextMap));
+  }
+
+  public void runWith(String key, String value, Runnable task) {
+    var old = map.get();
+    map.set(old.with(key, value));
+    try {
+      task.run();
+    } finally {
+      map.set(old);
+    }
+  }
+
+  public <T> T callWith(String key, String value, Callable<T> task) throws Exception {
+    var old = map.get();
+    map.set(old.with(key, value));
+    try {
+      return task.call();
+    } finally {
+      map.set(old);
+    }
+  }
+
+  public <T> T callWith(Map<String, String> contextMap, Callable<T> task) throws Exception {
+    var old = map.get();
+    map.set(MDCMap.of(contextMap));
+    try {
+      return task.call();
+    } finally {
+      map.set(old);
     }
   }
 
   @Override
   public void pushByKey(String key, String value) {
-    queues.get()
-      .computeIfAbsent(key, k -> new LinkedList<>())
-      .addFirst(value);
+    var m = queues.get();
+    queues.set(m.with(key, new Stack(value, m.get(key))));
   }
 
   @Override
@@ -86,24 +112,26 @@ public class FastMDCAdapter implements MDCAdapter {
     var m = queues.get();
     var q = m.get(key);
     if (q == null) return null;
-    var e = q.pollFirst();
-    if (e == null) {
-      m.remove(key);
-      return null;
-    } else {
-      return e;
-    }
+    queues.set(q.next == null ? m.without(key) : m.with(key, q.next));
+    return q.value;
   }
 
   @Override
   public Deque<String> getCopyOfDequeByKey(String key) {
-    var m = queues.get();
-    var q = m.get(key);
-    return q == null ? null : new LinkedList<>(q);
+    var q = queues.get().get(key);
+    if (q == null) return null;
+    var deque = new LinkedList<String>();
+    for (var e = q; e != null; e = e.next) {
+      deque.addLast(e.value);
+    }
+    return deque;
   }
 
   @Override
   public void clearDequeByKey(String key) {
-    queues.get().remove(key);
+    queues.set(queues.get().without(key));
+  }
+
+  record Stack(String value, Stack next) {
   }
 }
@@ -27,10 +27,12 @@ import org.slf4j.Marker;
 import java.util.Iterator;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public final class FastMarkerFactory implements IMarkerFactory {
 
   private final ConcurrentHashMap<String, FastMarker> map = new ConcurrentHashMap<>(16, 0.5f);
+  private final AtomicInteger version = new AtomicInteger();
 
   @Override
   public Marker getMarker(String name) {
@@ -52,10 +54,11 @@ public final class FastMarkerFactory implements IMarkerFactory {
     return new FastMarker(name);
   }
 
-  private static final class FastMarker implements Marker {
+  final class FastMarker implements Marker {
 
     private final String name;
     private final ConcurrentLinkedQueue<Marker> children = new ConcurrentLinkedQueue<>();
+    private volatile Decision decision;
 
     private FastMarker(String name) {
       this.name = name;
@@ -69,12 +72,29 @@ public final class FastMarkerFactory implements IMarkerFactory {
     @Override
     public void add(Marker reference) {
       if (reference == null) throw new IllegalArgumentException("Marker reference cannot be null");
-      if (!contains(reference) && !reference.contains(this)) children.offer(reference);
+      if (!contains(reference) && !reference.contains(this)) {
+        children.offer(reference);
+        version.incrementAndGet();
+      }
     }
 
     @Override
     public boolean remove(Marker reference) {
-      return children.remove(reference);
+      if (children.remove(reference)) {
+        version.incrementAndGet();
+        return true;
+      } else {
+        return false;
+      }
+    }
+
+    int threshold(LevelTable table) {
+      var d = decision;
+      var v = version.get();
+      if (d != null && d.table == table && d.version == v) return d.threshold;
+      var threshold = table.threshold(this);
+      decision = new Decision(table, v, threshold);
+      return threshold;
     }
 
     @Override
@@ -136,4 +156,7 @@ public final class FastMarkerFactory implements IMarkerFactory {
       }
     }
   }
+
+  private record Decision(LevelTable table, int version, int threshold) {
+  }
 }
@@ -42,6 +42,39 @@ final class FileBuffer implements Closeable {
   private final FileChannel bch;
   private final MappedByteBuffer byteBuffer;
   private final CharsetEncoder encoder;
+  final Text escapedText = new Text() {
+    @Override
+    public void write(char c) {
+      if (escape(c)) FileBuffer.this.write(CharBuffer.wrap(buf));
+      else FileBuffer.this.write(c);
+    }
+
+    @Override
+    public void write(String v) {
+      writeEscaped(v);
+    }
+
+    @Override
+    public void writeInt(int v) {
+      FileBuffer.this.writeInt(v);
+    }
+  };
+  final Text rawText = new Text() {
+    @Override
+    public void write(char c) {
+      FileBuffer.this.write(c);
+    }
+
+    @Override
+    public void write(String v) {
+      writeRaw(v);
+    }
+
+    @Override
+    public void writeInt(int v) {
+      FileBuffer.this.writeInt(v);
+    }
+  };
 
   public FileBuffer(int maxFileSize) {
     try {
@@ -73,6 +106,11 @@ final class FileBuffer implements Closeable {
 
   void writeQuotedString(String v) {
     write('"');
+    writeEscaped(v);
+    write('"');
+  }
+
+  void writeEscaped(String v) {
     int o = 0, l = v.length();
     for (int i = 0; i < l; i++) {
       var c = v.charAt(i);
@@ -83,7 +121,6 @@ final class FileBuffer implements Closeable {
       }
     }
     if (o < l) write(CharBuffer.wrap(v, o, l));
-    write('"');
   }
 
   void writeSafeQuotedString(String v) {
@@ -134,6 +171,80 @@ final class FileBuffer implements Closeable {
     write(CharBuffer.wrap(builder));
   }
 
+  void writeDouble(double v) {
+    builder.setLength(0);
+    builder.append(v);
+    write(CharBuffer.wrap(builder));
+  }
+
+  void writeRaw(String v) {
+    write(CharBuffer.wrap(v));
+  }
+
+  void writeByte(int v) {
+    byteBuffer.put((byte) v);
+  }
+
+  void writeFixedLong(long v) {
+    byteBuffer.putLong(v);
+  }
+
+  void writeVarLong(long v) {
+    while ((v & ~0x7FL) != 0L) {
+      byteBuffer.put((byte) ((v & 0x7FL) | 0x80L));
+      v >>>= 7;
+    }
+    byteBuffer.put((byte) v);
+  }
+
+  void writeZigZag(long v) {
+    writeVarLong((v << 1) ^ (v >> 63));
+  }
+
+  void writeUtf8(String v) {
+    if (v == null) {
+      writeByte(0);
+    } else {
+      var size = varLongSize(v.length() * 3L + 1L);
+      var position = reserve(size);
+      writeRaw(v);
+      patchVarLong(position, size, byteBuffer.position() - position - size + 1L);
+    }
+  }
+
+  void writeBytes(byte[] bytes) {
+    byteBuffer.put(bytes);
+  }
+
+  byte[] bytesFrom(int position) {
+    var bytes = new byte[byteBuffer.position() - position];
+    byteBuffer.get(position, bytes);
+    return bytes;
+  }
+
+  int reserve(int size) {
+    var position = byteBuffer.position();
+    for (int i = 0; i < size; i++) byteBuffer.put((byte) 0);
+    return position;
+  }
+
+  void patchVarLong(int position, int size, long v) {
+    for (int i = 0; i < size; i++, v >>>= 7) {
+      var b = (byte) (v & 0x7FL);
+      byteBuffer.put(position + i, i < size - 1 ? (byte) (b | 0x80) : b);
+    }
+  }
+
+  static int varLongSize(long maxValue) {
+    var size = 1;
+    for (var v = maxValue >>> 7; v != 0L; v >>>= 7) size++;
+    return size;
+  }
+
+  int position() {
+    return byteBuffer.position();
+  }
+
   void writeMarker(String v) {
     write('"');
     int o = 0, l = v.length();
@@ -163,6 +274,16 @@ final class FileBuffer implements Closeable {
     }
   }
 
+  void copyTo(OutputStream stream) throws IOException {
+    var buf = tempBuf;
+    for (int p = 0, end = byteBuffer.position(); p < end; ) {
+      var l = Math.min(end - p, buf.length);
+      byteBuffer.get(p, buf, 0, l);
+      stream.write(buf, 0, l);
+      p += l;
+    }
+  }
+
   void reset() {
     byteBuffer.clear();
   }
@@ -211,4 +332,13 @@ final class FileBuffer implements Closeable {
       }
     }
   }
+
+  interface Text {
+
+    void write(char c);
+
+    void write(String v);
+
+    void writeInt(int v);
+  }
 }
@@ -24,42 +24,133 @@ package org.tybloco.runtime.logging;
 import org.tybloco.runtime.util.Settings;
 
 import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
 import java.net.InetAddress;
 import java.net.NetworkInterface;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
 
 final class HostContext {
 
-  final List<String> addresses;
-  final List<String> hosts;
   final List<String> users;
-  final long pid = ProcessHandle.current().pid();
+  final long pid;
+  final CompletableFuture<HostContext> resolution = new CompletableFuture<>();
+  private volatile Hosts resolved;
 
   public HostContext() {
+    this(r -> Thread.ofVirtual().name("host-context").start(r));
+  }
+
+  HostContext(Executor resolver) {
     var ctx = new Ctx();
-    if (ctx.resolveNetworks) {
-      try {
-        var networks = NetworkInterface.networkInterfaces().toList();
-        for (var network : networks) {
-          if (network.isLoopback()) continue;
-          visit(network, ctx);
+    this.users = List.copyOf(ctx.users);
+    this.pid = ProcessHandle.current().pid();
+    this.resolved = new Hosts(List.of(), List.copyOf(ctx.hosts));
+    if (ctx.resolveNetworks || ctx.resolveHosts) {
+      var cached = load(ctx);
+      if (cached != null) resolved = cached;
+      resolver.execute(() -> resolve(ctx));
+    } else {
+      resolution.complete(this);
+    }
+  }
+
+  HostContext(List<String> addresses, List<String> hosts, List<String> users, long pid) {
+    this.users = List.copyOf(users);
+    this.pid = pid;
+    this.resolved = new Hosts(List.copyOf(addresses), List.copyOf(hosts));
+    this.resolution.complete(this);
+  }
+
+  List<String> addresses() {
+    return resolved.addresses;
+  }
+
+  List<String> hosts() {
+    return resolved.hosts;
+  }
+
+  private void resolve(Ctx ctx) {
+    try {
+      if (ctx.resolveNetworks) {
+        try {
+          var networks = NetworkInterface.networkInterfaces().toList();
+          for (var network : networks) {
+            if (network.isLoopback()) continue;
+            visit(network, ctx);
+          }
+        } catch (IOException e) {
+          e.printStackTrace(System.err);
         }
-      } catch (IOException e) {
-        e.printStackTrace(System.err);
       }
+      if (ctx.resolveHosts) {
+        try {
+          var addr = InetAddress.getLocalHost();
+          ctx.addresses.add(addr.getHostAddress());
+          ctx.hosts.add(addr.getHostName());
+        } catch (IOException e) {
+          e.printStackTrace(System.err);
+        }
+      }
+      var hosts = new Hosts(List.copyOf(ctx.addresses), List.copyOf(ctx.hosts));
+      resolved = hosts;
+      store(ctx, hosts);
+    } catch (Throwable e) {
+      e.printStackTrace(System.err);
+    } finally {
+      resolution.complete(this);
+    }
+  }
+
+  private static Hosts load(Ctx ctx) {
+    try {
+      var time = Files.getLastModifiedTime(ctx.cache).toMillis();
+      if (System.currentTimeMillis() - time > ctx.cacheTtl) return null;
+      var props = new Properties();
+      try (Reader reader = Files.newBufferedReader(ctx.cache)) {
+        props.load(reader);
+      }
+      return new Hosts(list(props.getProperty("addresses")), list(props.getProperty("hosts")));
+    } catch (NoSuchFileException e) {
+      return null;
+    } catch (Throwable e) {
+      e.printStackTrace(System.err);
+      return null;
     }
-    if (ctx.resolveHosts) {
+  }
+
+  private static void store(Ctx ctx, Hosts hosts) {
+    try {
+      var props = new Properties();
+      props.setProperty("addresses", String.join(",", hosts.addresses));
+      props.setProperty("hosts", String.join(",", hosts.hosts));
+      var parent = ctx.cache.toAbsolutePath().getParent();
+      Files.createDirectories(parent);
+      var temp = Files.createTempFile(parent, ctx.cache.getFileName().toString(), ".tmp");
       try {
-        var addr = InetAddress.getLocalHost();
-        ctx.addresses.add(addr.getHostAddress());
-        ctx.hosts.add(addr.getHostName());
-      } catch (IOException e) {
-        e.printStackTrace(System.err);
+        try (Writer writer = Files.newBufferedWriter(temp)) {
+          props.store(writer, null);
+        }
+        Files.move(temp, ctx.cache, ATOMIC_MOVE, REPLACE_EXISTING);
+      } finally {
+        Files.deleteIfExists(temp);
       }
+    } catch (Throwable e) {
+      e.printStackTrace(System.err);
     }
-    this.addresses = List.copyOf(ctx.addresses);
-    this.hosts = List.copyOf(ctx.hosts);
-    this.users = List.copyOf(ctx.users);
+  }
+
+  private static List<String> list(String value) {
+    if (value == null || value.isBlank()) return List.of();
+    return List.of(value.split(","));
   }
 
   private void visit(NetworkInterface networkInterface, Ctx ctx) {
@@ -89,6 +180,8 @@ final class HostContext {
     private final boolean deep = Settings.booleanSetting("TY_RESOLVE_NETWORKS_DEEP").orElse(Boolean.FALSE);
     private final boolean resolveHosts = Settings.booleanSetting("TY_RESOLVE_HOSTS").orElse(Boolean.FALSE);
     private final boolean resolveNetworks = Settings.booleanSetting("TY_RESOLVE_NETWORKS").orElse(Boolean.FALSE);
+    private final long cacheTtl = Settings.longSetting("TY_HOST_CACHE_TTL").orElse(86_400_000L);
+    private final Path cache;
 
     private Ctx() {
       Optional.ofNullable(System.getenv("HOSTNAME"))
@@ -99,6 +192,12 @@ final class HostContext {
         .ifPresent(hosts::add);
       users.add(System.getProperty("user.name", "anonymous"));
       ProcessHandle.current().info().user().ifPresent(users::add);
+      cache = Settings.setting("TY_HOST_CACHE")
+        .filter(v -> !v.isBlank())
+        .map(Path::of)
+        .orElseGet(() -> Path.of(System.getProperty("java.io.tmpdir"), "tybloco-host-" + users.getFirst() + ".properties"));
     }
   }
+
+  private record Hosts(List<String> addresses, List<String> hosts) {}
 }
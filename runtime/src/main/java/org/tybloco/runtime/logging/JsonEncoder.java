@@ -0,0 +1,42 @@
+package org.tybloco.runtime.logging;
+
+/*-
+ * #%L
+ * runtime
+ * %%
+ * Copyright (C) 2023 Montoni
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import org.tybloco.runtime.util.Settings;
+
+final class JsonEncoder implements LogEncoder {
+
+  private final JsonFragments fragments;
+  private final Timestamps timestamps;
+  private final StackTraces stackTraces;
+
+  JsonEncoder(HostContext context, Timestamps timestamps, StackTraces stackTraces) {
+    this.fragments = new JsonFragments(context, Settings.intSetting("TY_LOG_FRAGMENT_CACHE_SIZE").orElse(4096));
+    this.timestamps = timestamps;
+    this.stackTraces = stackTraces;
+  }
+
+  @Override
+  public void encode(LogRecord record, FileBuffer buffer) {
+    record.writeTo(buffer, fragments, timestamps, stackTraces);
+  }
+}
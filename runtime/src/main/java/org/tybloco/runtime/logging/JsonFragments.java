@@ -0,0 +1,105 @@
+package org.tybloco.runtime.logging;
+
+/*-
+ * #%L
+ * runtime
+ * %%
+ * Copyright (C) 2023 Montoni
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import org.slf4j.event.Level;
+
+import java.util.HashMap;
+
+final class JsonFragments {
+
+  private final byte[][] levels = new byte[Level.values().length][];
+  private final HashMap<String, byte[]> loggers = new HashMap<>(256, 0.5f);
+  private final HashMap<Long, ThreadFragment> threads = new HashMap<>(256, 0.5f);
+  private final HostContext context;
+  private final int maxSize;
+  private byte[] user;
+  private byte[] pid;
+
+  JsonFragments(HostContext context, int maxSize) {
+    this.context = context;
+    this.maxSize = maxSize;
+  }
+
+  void writeLevel(FileBuffer buffer, Level level) {
+    var bytes = levels[level.ordinal()];
+    if (bytes == null) {
+      var position = buffer.position();
+      buffer.writeSafePair("log.level", level.toString());
+      buffer.write(',');
+      levels[level.ordinal()] = buffer.bytesFrom(position);
+    } else {
+      buffer.writeBytes(bytes);
+    }
+  }
+
+  void writeLogger(FileBuffer buffer, String logger) {
+    var bytes = loggers.get(logger);
+    if (bytes == null) {
+      var position = buffer.position();
+      buffer.writePair("log.logger", logger);
+      buffer.write(',');
+      if (loggers.size() >= maxSize) loggers.clear();
+      loggers.put(logger, buffer.bytesFrom(position));
+    } else {
+      buffer.writeBytes(bytes);
+    }
+  }
+
+  void writeThread(FileBuffer buffer, long threadId, String threadName) {
+    var fragment = threads.get(threadId);
+    if (fragment != null && (fragment.name == threadName || fragment.name.equals(threadName))) {
+      buffer.writeBytes(fragment.bytes);
+    } else {
+      var position = buffer.position();
+      buffer.writePair("process.thread.id", threadId);
+      buffer.write(',');
+      buffer.writePair("process.thread.name", threadName);
+      buffer.write(',');
+      if (fragment == null && threads.size() >= maxSize) threads.clear();
+      threads.put(threadId, new ThreadFragment(threadName, buffer.bytesFrom(position)));
+    }
+  }
+
+  void writeUser(FileBuffer buffer) {
+    if (user == null) {
+      var position = buffer.position();
+      buffer.writePair("user.name", context.users.getFirst());
+      buffer.write(',');
+      user = buffer.bytesFrom(position);
+    } else {
+      buffer.writeBytes(user);
+    }
+  }
+
+  void writePid(FileBuffer buffer) {
+    if (pid == null) {
+      var position = buffer.position();
+      buffer.writePair("process.pid", context.pid);
+      pid = buffer.bytesFrom(position);
+    } else {
+      buffer.writeBytes(pid);
+    }
+  }
+
+  private record ThreadFragment(String name, byte[] bytes) {}
+}
@@ -0,0 +1,196 @@
+package org.tybloco.runtime.logging;
+
+/*-
+ * #%L
+ * runtime
+ * %%
+ * Copyright (C) 2023 Montoni
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import org.slf4j.Marker;
+
+import java.net.URL;
+import java.util.*;
+import java.util.regex.Pattern;
+
+import static java.lang.System.Logger.Level.valueOf;
+
+final class LevelTable {
+
+  static final int ALL = System.Logger.Level.ALL.getSeverity();
+  static final LevelTable EMPTY = new Builder().build();
+
+  private final Node root;
+  private final Pattern[] patterns;
+  private final int[] patternLevels;
+  private final HashMap<String, Integer> markers;
+  private final SamplingRule[] samplingRules;
+  private final HashMap<String, Sampler> markerSamplers = new HashMap<>(16, 0.5f);
+
+  private LevelTable(Builder builder, LevelTable previous) {
+    this.root = builder.root;
+    this.patterns = builder.patterns.keySet().toArray(Pattern[]::new);
+    this.patternLevels = builder.patterns.values().stream().mapToInt(Integer::intValue).toArray();
+    this.markers = new HashMap<>(builder.markers);
+    this.samplingRules = builder.samplingRules.values().toArray(SamplingRule[]::new);
+    builder.markerSamplingRules.forEach((marker, rule) -> {
+      var sampler = previous == null ? null : previous.markerSamplers.get(marker);
+      markerSamplers.put(marker, sampler != null && sampler.rule().equals(rule) ? sampler : new Sampler("marker:" + marker, rule));
+    });
+  }
+
+  int level(String logger) {
+    var level = root.resolve(logger);
+    for (int i = 0; i < patterns.length; i++) {
+      if (patternLevels[i] > level && patterns[i].matcher(logger).matches()) {
+        level = patternLevels[i];
+      }
+    }
+    return level;
+  }
+
+  boolean markerEnabled(int severity, Marker marker) {
+    if (markers.isEmpty()) return true;
+    if (marker instanceof FastMarkerFactory.FastMarker m) return severity >= m.threshold(this);
+    return severity >= threshold(marker);
+  }
+
+  Sampler sampler(String logger, Sampler previous) {
+    for (var rule : samplingRules) {
+      if (rule.pattern.matcher(logger).matches()) {
+        return previous != null && previous.rule().equals(rule.rule) ? previous : new Sampler(logger, rule.rule);
+      }
+    }
+    return null;
+  }
+
+  boolean sample(Marker marker, String callSite) {
+    return markerSamplers.isEmpty() || sampleMarker(marker, callSite);
+  }
+
+  Collection<Sampler> markerSamplers() {
+    return markerSamplers.values();
+  }
+
+  private boolean sampleMarker(Marker marker, String callSite) {
+    var sampler = markerSamplers.get(marker.getName());
+    if (sampler != null && !sampler.allow(callSite)) return false;
+    for (var it = marker.iterator(); it.hasNext(); ) {
+      if (!sampleMarker(it.next(), callSite)) return false;
+    }
+    return true;
+  }
+
+  int threshold(Marker marker) {
+    var threshold = markers.getOrDefault(marker.getName(), ALL);
+    for (var it = marker.iterator(); it.hasNext(); ) {
+      threshold = Math.max(threshold, threshold(it.next()));
+    }
+    return threshold;
+  }
+
+  private record SamplingRule(Pattern pattern, Sampler.Rule rule) {
+  }
+
+  private static final class Node {
+
+    private final HashMap<String, Node> children = new HashMap<>(4, 0.5f);
+    private int level = ALL;
+    private boolean defined;
+
+    private int resolve(String name) {
+      var node = this;
+      var level = defined ? this.level : ALL;
+      for (int start = 0, len = name.length(); start <= len; ) {
+        var end = name.indexOf('.', start);
+        if (end < 0) end = len;
+        node = node.children.get(name.substring(start, end));
+        if (node == null) break;
+        if (node.defined) level = node.level;
+        start = end + 1;
+      }
+      return level;
+    }
+
+    private Node child(String name) {
+      var node = this;
+      if (name.isEmpty()) return node;
+      for (var segment : name.split("\\.")) {
+        node = node.children.computeIfAbsent(segment, k -> new Node());
+      }
+      return node;
+    }
+  }
+
+  static final class Builder {
+
+    private final Node root = new Node();
+    private final LinkedHashMap<Pattern, Integer> patterns = new LinkedHashMap<>();
+    private final HashMap<String, Integer> markers = new HashMap<>(16, 0.5f);
+    private final TreeMap<String, SamplingRule> samplingRules = new TreeMap<>();
+    private final HashMap<String, Sampler.Rule> markerSamplingRules = new HashMap<>(16, 0.5f);
+
+    Builder add(URL url, Properties properties) {
+      properties.forEach((ko, vo) -> {
+        if (ko instanceof String k && vo instanceof String v) {
+          try {
+            add(k, v.trim());
+          } catch (Throwable x) {
+            throw new IllegalStateException("Unable to process " + k + " of " + url, x);
+          }
+        }
+      });
+      return this;
+    }
+
+    private void add(String k, String v) {
+      if (k.startsWith("pattern.")) {
+        var idx = v.indexOf(',');
+        if (idx >= 0) {
+          var level = valueOf(v.substring(0, idx));
+          var pattern = Pattern.compile(v.substring(idx + 1));
+          patterns.put(pattern, level.getSeverity());
+        }
+      } else if (k.startsWith("marker.")) {
+        var level = valueOf(v);
+        markers.put(k.substring("marker.".length()), level.getSeverity());
+      } else if (k.startsWith("logger.")) {
+        var level = valueOf(v);
+        var node = root.child(k.substring("logger.".length()));
+        node.level = level.getSeverity();
+        node.defined = true;
+      } else if (k.startsWith("sampling.marker.")) {
+        markerSamplingRules.put(k.substring("sampling.marker.".length()), Sampler.Rule.parse(v));
+      } else if (k.startsWith("sampling.")) {
+        var idx = v.indexOf(',');
+        if (idx >= 0) {
+          var rule = Sampler.Rule.parse(v.substring(0, idx));
+          var pattern = Pattern.compile(v.substring(idx + 1));
+          samplingRules.put(k.substring("sampling.".length()), new SamplingRule(pattern, rule));
+        }
+      }
+    }
+
+    LevelTable build() {
+      return build(null);
+    }
+
+    LevelTable build(LevelTable previous) {
+      return new LevelTable(this, previous);
+    }
+  }
+}
@@ -0,0 +1,177 @@
+package org.tybloco.runtime.logging;
+
+/*-
+ * #%L
+ * runtime
+ * %%
+ * Copyright (C) 2023 Montoni
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import org.slf4j.event.Level;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.Callable;
+
+import static java.nio.file.StandardOpenOption.*;
+
+final class LogOutput implements Closeable {
+
+  private static final long RETRY_PERIOD = 1_000_000_000L;
+
+  final String name;
+  final String format;
+  private final int level;
+  private final int sample;
+  private final int flushRecords;
+  private final Callable<OutputStream> target;
+  private final boolean owned;
+  private OutputStream stream;
+  private long counter;
+  private int pending;
+  private long retryTime;
+  private long dropped;
+
+  LogOutput(String name, String format, Level level, int sample, int flushRecords, Callable<OutputStream> target, boolean owned) {
+    this.name = name;
+    this.format = format;
+    this.level = level.toInt();
+    this.sample = sample;
+    this.flushRecords = flushRecords;
+    this.target = target;
+    this.owned = owned;
+  }
+
+  static LogOutput of(String name, String format, Level level, int sample, int flushRecords, String target, OutputStream stdout) {
+    return switch (target) {
+      case "stdout" -> new LogOutput(name, format, level, sample, flushRecords, () -> stdout, false);
+      case "stderr" -> new LogOutput(name, format, level, sample, flushRecords, () -> new FileOutputStream(FileDescriptor.err), false);
+      default -> new LogOutput(name, format, level, sample, flushRecords, () -> open(target), true);
+    };
+  }
+
+  private static OutputStream open(String target) throws IOException {
+    var index = target.indexOf(':');
+    if (index < 0) throw new IllegalArgumentException("Invalid log output target: " + target);
+    var address = target.substring(index + 1);
+    var stream = switch (target.substring(0, index)) {
+      case "file" -> {
+        var path = Path.of(address);
+        if (path.getParent() != null) Files.createDirectories(path.getParent());
+        yield Files.newOutputStream(path, CREATE, WRITE, APPEND);
+      }
+      case "tcp" -> {
+        var port = address.lastIndexOf(':');
+        var socket = new Socket();
+        try {
+          socket.connect(new InetSocketAddress(address.substring(0, port), Integer.parseInt(address.substring(port + 1))), 1_000);
+          yield socket.getOutputStream();
+        } catch (Throwable e) {
+          socket.close();
+          throw e;
+        }
+      }
+      case "unix" -> Channels.newOutputStream(SocketChannel.open(UnixDomainSocketAddress.of(address)));
+      default -> throw new IllegalArgumentException("Invalid log output target: " + target);
+    };
+    return new BufferedOutputStream(stream, 1 << 16);
+  }
+
+  boolean accepts(LogRecord record) {
+    if (record.level().toInt() < level) return false;
+    return sample <= 1 || counter++ % sample == 0L;
+  }
+
+  boolean open() {
+    return stream == null && stream() != null;
+  }
+
+  boolean write(FileBuffer buffer) {
+    var s = stream();
+    if (s == null) {
+      dropped++;
+      return false;
+    }
+    try {
+      buffer.copyTo(s);
+      if (flushRecords > 0 && ++pending >= flushRecords) {
+        pending = 0;
+        s.flush();
+      }
+      return true;
+    } catch (Throwable e) {
+      fail(e);
+      return false;
+    }
+  }
+
+  void flush() {
+    var s = stream;
+    if (s == null) return;
+    pending = 0;
+    try {
+      s.flush();
+    } catch (Throwable e) {
+      fail(e);
+    }
+  }
+
+  private OutputStream stream() {
+    var s = stream;
+    if (s != null) return s;
+    var time = System.nanoTime();
+    if (retryTime != 0L && time - retryTime < RETRY_PERIOD) return null;
+    try {
+      stream = s = target.call();
+      retryTime = 0L;
+      if (dropped > 0L) {
+        System.err.printf("Log output %s dropped %d records%n", name, dropped);
+        dropped = 0L;
+      }
+      return s;
+    } catch (Throwable e) {
+      if (retryTime == 0L) e.printStackTrace(System.err);
+      retryTime = time;
+      return null;
+    }
+  }
+
+  private void fail(Throwable e) {
+    e.printStackTrace(System.err);
+    close();
+    retryTime = System.nanoTime();
+  }
+
+  @Override
+  public void close() {
+    var s = stream;
+    if (s == null) return;
+    stream = null;
+    try {
+      if (owned) s.close();
+      else s.flush();
+    } catch (Throwable e) {
+      e.printStackTrace(System.err);
+    }
+  }
+}
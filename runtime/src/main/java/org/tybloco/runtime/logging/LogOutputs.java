@@ -0,0 +1,150 @@
+package org.tybloco.runtime.logging;
+
+/*-
+ * #%L
+ * runtime
+ * %%
+ * Copyright (C) 2023 Montoni
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import org.slf4j.event.Level;
+import org.tybloco.runtime.util.Settings;
+
+import java.io.Closeable;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+
+final class LogOutputs implements Closeable {
+
+  private final Group[] groups;
+
+  LogOutputs(List<LogOutput> outputs, HostContext context, Timestamps timestamps, StackTraces stackTraces, int maxRecordSize) {
+    var map = new LinkedHashMap<Object, ArrayList<LogOutput>>();
+    for (var output : outputs) {
+      var key = "binary".equals(output.format) ? output : output.format;
+      map.computeIfAbsent(key, k -> new ArrayList<>(2)).add(output);
+    }
+    groups = map.values().stream()
+      .map(list -> new Group(
+        encoder(list.getFirst().format, context, timestamps, stackTraces.copy()),
+        new FileBuffer(maxRecordSize),
+        list.toArray(LogOutput[]::new)
+      ))
+      .toArray(Group[]::new);
+  }
+
+  static LogOutputs fromSettings(OutputStream stdout, HostContext context, Timestamps timestamps, StackTraces stackTraces) {
+    var maxRecordSize = Settings.sizeSetting("TY_MAX_LOG_RECORD_SIZE").orElse(1 << 20);
+    var names = Settings.setting("TY_LOG_OUTPUTS").filter(v -> !v.isBlank());
+    if (names.isEmpty()) {
+      var format = Settings.setting("TY_LOG_FORMAT").orElse("json");
+      var output = LogOutput.of("default", format, Level.TRACE, 1, 0, "stdout", stdout);
+      return new LogOutputs(List.of(output), context, timestamps, stackTraces, maxRecordSize);
+    }
+    var outputs = new ArrayList<LogOutput>();
+    for (var name : names.get().split(",")) {
+      name = name.trim();
+      if (name.isEmpty()) continue;
+      var prefix = "TY_LOG_OUTPUT_" + name.toUpperCase(Locale.ROOT) + "_";
+      var target = Settings.setting(prefix + "TARGET").orElse("stdout");
+      var format = Settings.setting(prefix + "FORMAT").orElse("json");
+      var level = Level.valueOf(Settings.setting(prefix + "LEVEL").orElse("TRACE").toUpperCase(Locale.ROOT));
+      var sample = Settings.intSetting(prefix + "SAMPLE").orElse(1);
+      var flush = Settings.intSetting(prefix + "FLUSH").orElse(0);
+      outputs.add(LogOutput.of(name, format, level, sample, flush, target, stdout));
+    }
+    return new LogOutputs(outputs, context, timestamps, stackTraces, maxRecordSize);
+  }
+
+  private static LogEncoder encoder(String format, HostContext context, Timestamps timestamps, StackTraces stackTraces) {
+    return switch (format) {
+      case "json" -> new JsonEncoder(context, timestamps, stackTraces);
+      case "text" -> new TextEncoder(timestamps, stackTraces);
+      case "binary" -> new BinaryEncoder(context, timestamps, stackTraces, Settings.intSetting("TY_LOG_BINARY_SEGMENT_RECORDS").orElse(1 << 16));
+      default -> throw new IllegalArgumentException("Unknown log format: " + format);
+    };
+  }
+
+  void write(LogRecord record) {
+    for (var group : groups) {
+      group.write(record);
+    }
+  }
+
+  void flush() {
+    for (var group : groups) {
+      for (var output : group.outputs) {
+        output.flush();
+      }
+    }
+  }
+
+  @Override
+  public void close() {
+    for (var group : groups) {
+      try (group.buffer) {
+        for (var output : group.outputs) {
+          output.close();
+        }
+      }
+    }
+  }
+
+  private static final class Group {
+
+    private final LogEncoder encoder;
+    private final FileBuffer buffer;
+    private final LogOutput[] outputs;
+    private final LogOutput[] accepted;
+
+    private Group(LogEncoder encoder, FileBuffer buffer, LogOutput[] outputs) {
+      this.encoder = encoder;
+      this.buffer = buffer;
+      this.outputs = outputs;
+      this.accepted = new LogOutput[outputs.length];
+    }
+
+    private void write(LogRecord record) {
+      var count = 0;
+      for (var output : outputs) {
+        if (output.accepts(record)) accepted[count++] = output;
+      }
+      if (count == 0) return;
+      var opened = false;
+      for (int i = 0; i < count; i++) {
+        if (accepted[i].open()) opened = true;
+      }
+      if (opened) encoder.reset();
+      try {
+        encoder.encode(record, buffer);
+        var written = true;
+        for (int i = 0; i < count; i++) {
+          if (!accepted[i].write(buffer)) written = false;
+        }
+        if (!written) encoder.reset();
+      } catch (Throwable e) {
+        encoder.reset();
+        e.printStackTrace(System.err);
+      } finally {
+        buffer.reset();
+      }
+    }
+  }
+}
@@ -22,86 +22,127 @@ package org.tybloco.runtime.logging;
  */
 
 import org.slf4j.Marker;
+import org.slf4j.event.KeyValuePair;
 import org.slf4j.event.Level;
 import org.slf4j.helpers.MessageFormatter;
 
-import java.io.PrintWriter;
-import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.math.BigInteger;
 import java.sql.SQLException;
-import java.time.Instant;
-import java.util.*;
+import java.util.Arrays;
+import java.util.List;
 
-record LogRecord(Level level, Thread thread, Instant time, String logger, Marker marker, String msg, Throwable throwable,
-                 TreeMap<String, String> mdc, TreeMap<String, LinkedList<String>> stack, String stacktrace) {
+record LogRecord(Level level, long threadId, String threadName, long time, String logger, List<Marker> markers, String msg, Throwable throwable,
+                 List<KeyValuePair> keyValues, MDCMap<String> mdc, MDCMap<FastMDCAdapter.Stack> stack, DecodedError decodedError) {
 
-  LogRecord(Level level, Thread thread, Instant time, String logger, Marker marker, String fmt, Object[] args, Throwable error, FastMDCAdapter mdc) {
-    this(level, thread, time, logger, marker, msg(fmt, args, error), error, mdc.map.get(), mdc.queues.get(), stacktrace(error));
+  private static final String[] RESERVED_FIELDS = {"@timestamp", "message", "tags", "labels", "log", "process", "user", "error", "kv"};
+
+  LogRecord(Level level, long threadId, String threadName, long time, String logger, List<Marker> markers, String msg, Throwable throwable,
+            List<KeyValuePair> keyValues, MDCMap<String> mdc, MDCMap<FastMDCAdapter.Stack> stack) {
+    this(level, threadId, threadName, time, logger, markers, msg, throwable, keyValues, mdc, stack, null);
+  }
+
+  LogRecord(Level level, Thread thread, long time, String logger, Marker marker, String fmt, Object[] args, Throwable error, FastMDCAdapter mdc) {
+    this(level, thread, time, logger, marker == null ? List.of() : List.of(marker), fmt, args, error, List.of(), mdc);
   }
 
-  void writeTo(FileBuffer buffer, HostContext context) {
+  LogRecord(Level level, Thread thread, long time, String logger, List<Marker> markers, String fmt, Object[] args, Throwable error,
+            List<KeyValuePair> keyValues, FastMDCAdapter mdc) {
+    this(
+      level, thread.threadId(), thread.getName(), time, logger, markers, msg(fmt, args, error), error, keyValues(keyValues),
+      mdc.map.get(), mdc.queues.get()
+    );
+  }
+
+  void writeTo(FileBuffer buffer, JsonFragments fragments, Timestamps timestamps, StackTraces stackTraces) {
     buffer.write('{');
-    writeBody(buffer, context);
+    writeBody(buffer, fragments, timestamps, stackTraces);
     buffer.write('}');
     buffer.write('\n');
   }
 
-  private void writeBody(FileBuffer buffer, HostContext context) {
-    writeBasic(buffer);
-    writeUser(buffer, context);
+  private void writeBody(FileBuffer buffer, JsonFragments fragments, Timestamps timestamps, StackTraces stackTraces) {
+    writeBasic(buffer, fragments, timestamps);
+    fragments.writeUser(buffer);
     writeLabels(buffer);
+    writeKeyValues(buffer);
     writeTags(buffer);
-    writeError(buffer);
-    writePid(buffer, context);
+    writeError(buffer, stackTraces);
+    fragments.writePid(buffer);
   }
 
-  private void writeBasic(FileBuffer buffer) {
-    buffer.writeSafePair("@timestamp", time.toString());
-    buffer.write(',');
-    buffer.writeSafePair("log.level", level.toString());
-    buffer.write(',');
-    buffer.writePair("log.logger", logger);
+  private void writeBasic(FileBuffer buffer, JsonFragments fragments, Timestamps timestamps) {
+    buffer.writeKey("@timestamp");
+    buffer.write(':');
+    timestamps.write(buffer, time);
     buffer.write(',');
+    fragments.writeLevel(buffer, level);
+    fragments.writeLogger(buffer, logger);
     buffer.writePair("message", msg);
     buffer.write(',');
-    buffer.writePair("process.thread.id", thread.threadId());
-    buffer.write(',');
-    buffer.writePair("process.thread.name", thread.getName());
-    buffer.write(',');
-  }
-
-  private void writeUser(FileBuffer buffer, HostContext context) {
-    buffer.writePair("user.name", context.users.getFirst());
-    buffer.write(',');
+    fragments.writeThread(buffer, threadId, threadName);
   }
 
   private void writeLabels(FileBuffer buffer) {
-    var it = mdc.entrySet().iterator();
-    if (it.hasNext()) {
+    var size = mdc.size();
+    if (size > 0) {
       buffer.writeKey("labels");
       buffer.write(':');
       buffer.write('{');
-      while (it.hasNext()) {
-        var e = it.next();
-        buffer.writeKey(e.getKey());
-        buffer.write(':');
-        buffer.writeQuotedString(e.getValue());
-        if (it.hasNext()) {
+      for (int i = 0; i < size; i++) {
+        if (i > 0) {
           buffer.write(',');
         }
+        buffer.writeKey(mdc.key(i));
+        buffer.write(':');
+        buffer.writeQuotedString(mdc.value(i));
       }
       buffer.write('}');
       buffer.write(',');
     }
   }
 
+  private void writeKeyValues(FileBuffer buffer) {
+    for (int i = 0, l = keyValues.size(); i < l; i++) {
+      var kv = keyValues.get(i);
+      if (kv.key == null) continue;
+      buffer.writeQuotedString(reserved(kv.key) ? "kv." + kv.key : kv.key);
+      buffer.write(':');
+      switch (kv.value) {
+        case null -> buffer.writeRaw("null");
+        case Boolean v -> buffer.writeRaw(v ? "true" : "false");
+        case Integer v -> buffer.writeInt(v);
+        case Long v -> buffer.writeLong(v);
+        case Short v -> buffer.writeInt(v);
+        case Byte v -> buffer.writeInt(v);
+        case Double v when Double.isFinite(v) -> buffer.writeDouble(v);
+        case Float v when Float.isFinite(v) -> buffer.writeDouble(v);
+        case BigInteger v -> buffer.writeRaw(v.toString());
+        case BigDecimal v -> buffer.writeRaw(v.toString());
+        case String v -> buffer.writeQuotedString(v);
+        default -> buffer.writeQuotedString(String.valueOf(kv.value));
+      }
+      buffer.write(',');
+    }
+  }
+
+  private static boolean reserved(String key) {
+    for (var field : RESERVED_FIELDS) {
+      if (key.startsWith(field) && (key.length() == field.length() || key.charAt(field.length()) == '.')) return true;
+    }
+    return false;
+  }
+
   private void writeTags(FileBuffer buffer) {
-    if (marker != null) {
+    if (!markers.isEmpty()) {
       buffer.writeKey("tags");
       buffer.write(':');
       buffer.write('[');
-      buffer.writeMarker(marker.getName());
-      for (var it = marker.iterator(); it.hasNext(); ) {
-        writeTags(buffer, it.next());
+      for (int i = 0, l = markers.size(); i < l; i++) {
+        if (i > 0) {
+          buffer.write(',');
+        }
+        writeTags(buffer, markers.get(i));
       }
       buffer.write(']');
       buffer.write(',');
@@ -109,15 +150,18 @@ record LogRecord(Level level, Thread thread, Instant time, String logger, Marker
   }
 
   private void writeTags(FileBuffer buffer, Marker marker) {
-    buffer.write(',');
     buffer.writeMarker(marker.getName());
     for (var it = marker.iterator(); it.hasNext(); ) {
+      buffer.write(',');
       writeTags(buffer, it.next());
     }
   }
 
-  private void writeError(FileBuffer buffer) {
-    if (throwable != null) {
+  private void writeError(FileBuffer buffer, StackTraces stackTraces) {
+    if (decodedError != null) {
+      decodedError.writeTo(buffer);
+      buffer.write(',');
+    } else if (throwable != null) {
       var msg = throwable.getMessage();
       if (msg != null) {
         buffer.writePair("error.message", msg);
@@ -126,23 +170,24 @@ record LogRecord(Level level, Thread thread, Instant time, String logger, Marker
       buffer.writeSafePair("error.type", throwable.getClass().getName());
       buffer.write(',');
       if (throwable instanceof SQLException e) {
-        buffer.writePair("error.id", e.getErrorCode());
-        buffer.write(',');
-        buffer.writePair("error.code", e.getSQLState());
-        buffer.write(',');
+        writeSqlError(buffer, e.getErrorCode(), e.getSQLState());
       }
-    }
-    if (stacktrace != null) {
-      buffer.writePair("error.stack_trace", stacktrace);
+      stackTraces.write(buffer, throwable);
       buffer.write(',');
     }
   }
 
-  private void writePid(FileBuffer buffer, HostContext context) {
-    buffer.writePair("process.pid", context.pid);
+  private static void writeSqlError(FileBuffer buffer, int errorCode, String sqlState) {
+    buffer.writePair("error.id", errorCode);
+    buffer.write(',');
+    buffer.writePair("error.code", sqlState);
+    buffer.write(',');
   }
 
   private static String msg(String fmt, Object[] args, Throwable e) {
+    if (fmt == null || args == null || args.length == 0 || fmt.indexOf('{') < 0) {
+      return fmt;
+    }
     try {
       var tuple = MessageFormatter.arrayFormat(fmt, args, e);
       return tuple.getMessage();
@@ -152,15 +197,35 @@ record LogRecord(Level level, Thread thread, Instant time, String logger, Marker
     }
   }
 
-  private static String stacktrace(Throwable error) {
-    if (error == null) {
-      return null;
-    } else {
-      var w = new StringWriter();
-      try (var pw = new PrintWriter(w)) {
-        error.printStackTrace(pw);
-      }
-      return w.toString();
+  private static List<KeyValuePair> keyValues(List<KeyValuePair> keyValues) {
+    if (keyValues == null || keyValues.isEmpty()) {
+      return List.of();
+    }
+    var result = new KeyValuePair[keyValues.size()];
+    for (int i = 0; i < result.length; i++) {
+      var kv = keyValues.get(i);
+      result[i] = switch (kv.value) {
+        case null -> kv;
+        case String v -> kv;
+        case Boolean v -> kv;
+        case Number v when isScalar(v) -> kv;
+        default -> new KeyValuePair(kv.key, valueOf(kv.value));
+      };
+    }
+    return Arrays.asList(result);
+  }
+
+  private static boolean isScalar(Number number) {
+    return number instanceof Integer || number instanceof Long || number instanceof Short || number instanceof Byte
+      || number instanceof Double || number instanceof Float || number instanceof BigInteger || number instanceof BigDecimal;
+  }
+
+  private static String valueOf(Object value) {
+    try {
+      return String.valueOf(value);
+    } catch (Throwable x) {
+      x.printStackTrace(System.err);
+      return value.getClass().getName();
     }
   }
 }
@@ -23,23 +23,38 @@ package org.tybloco.runtime.logging;
 
 import org.slf4j.Marker;
 import org.slf4j.event.Level;
+import org.slf4j.event.LoggingEvent;
 import org.slf4j.helpers.AbstractLogger;
+import org.slf4j.helpers.NormalizedParameters;
+import org.slf4j.spi.LoggingEventAware;
 
-import java.time.Instant;
+import java.util.List;
 
-final class Logger extends AbstractLogger {
+final class Logger extends AbstractLogger implements LoggingEventAware {
 
-  private final int effectiveLevel;
   private final LoggingServiceProvider provider;
+  private volatile LevelTable levels;
+  private volatile int effectiveLevel;
+  private volatile Sampler sampler;
 
   Logger(LoggingServiceProvider provider, String name) {
     this.provider = provider;
     this.name = name;
-    this.effectiveLevel = provider.patternFilters.entrySet().parallelStream()
-      .filter(p -> p.getKey().matcher(name).matches())
-      .mapToInt(e -> e.getValue().getSeverity())
-      .max()
-      .orElseGet(System.Logger.Level.ALL::getSeverity);
+    update(provider.levels);
+  }
+
+  void update(LevelTable levels) {
+    this.effectiveLevel = levels.level(name);
+    this.sampler = levels.sampler(name, sampler);
+    this.levels = levels;
+  }
+
+  Sampler sampler() {
+    return sampler;
+  }
+
+  LevelTable levels() {
+    return levels;
   }
 
   @Override
@@ -54,11 +69,39 @@ final class Logger extends AbstractLogger {
 
   @Override
   protected void handleNormalizedLoggingCall(Level level, Marker marker, String messagePattern, Object[] arguments, Throwable throwable) {
+    var sampler = this.sampler;
+    if (sampler != null && !sampler.allow(messagePattern)) return;
+    if (marker != null && !levels.sample(marker, messagePattern)) return;
     var thread = Thread.currentThread();
-    var time = Instant.ofEpochMilli(System.currentTimeMillis());
+    var time = provider.timestamps.now();
     provider.put(new LogRecord(level, thread, time, name, marker, messagePattern, arguments, throwable, provider.getMDCAdapter()));
   }
 
+  @Override
+  public void log(LoggingEvent event) {
+    var level = event.getLevel();
+    var systemLevel = systemLevel(level);
+    if (!levelEnabled(systemLevel)) return;
+    var markers = event.getMarkers() == null ? List.<Marker>of() : event.getMarkers();
+    var levels = this.levels;
+    for (int i = 0, l = markers.size(); i < l; i++) {
+      if (!levels.markerEnabled(systemLevel.getSeverity(), markers.get(i))) return;
+    }
+    var params = NormalizedParameters.normalize(event);
+    var messagePattern = params.getMessage();
+    var sampler = this.sampler;
+    if (sampler != null && !sampler.allow(messagePattern)) return;
+    for (int i = 0, l = markers.size(); i < l; i++) {
+      if (!levels.sample(markers.get(i), messagePattern)) return;
+    }
+    var thread = Thread.currentThread();
+    var time = provider.timestamps.now();
+    var arguments = params.getArguments();
+    var throwable = params.getThrowable();
+    var keyValues = event.getKeyValuePairs();
+    provider.put(new LogRecord(level, thread, time, name, markers, messagePattern, arguments, throwable, keyValues, provider.getMDCAdapter()));
+  }
+
   @Override
   public boolean isTraceEnabled() {
     return levelEnabled(System.Logger.Level.TRACE);
@@ -66,7 +109,7 @@ final class Logger extends AbstractLogger {
 
   @Override
   public boolean isTraceEnabled(Marker marker) {
-    return markerEnabled(System.Logger.Level.TRACE, marker) && levelEnabled(System.Logger.Level.TRACE);
+    return levelEnabled(System.Logger.Level.TRACE) && markerEnabled(System.Logger.Level.TRACE, marker);
   }
 
   @Override
@@ -76,7 +119,7 @@ final class Logger extends AbstractLogger {
 
   @Override
   public boolean isDebugEnabled(Marker marker) {
-    return markerEnabled(System.Logger.Level.DEBUG, marker) && levelEnabled(System.Logger.Level.DEBUG);
+    return levelEnabled(System.Logger.Level.DEBUG) && markerEnabled(System.Logger.Level.DEBUG, marker);
   }
 
   @Override
@@ -86,7 +129,7 @@ final class Logger extends AbstractLogger {
 
   @Override
   public boolean isInfoEnabled(Marker marker) {
-    return markerEnabled(System.Logger.Level.INFO, marker) && levelEnabled(System.Logger.Level.INFO);
+    return levelEnabled(System.Logger.Level.INFO) && markerEnabled(System.Logger.Level.INFO, marker);
   }
 
   @Override
@@ -96,7 +139,7 @@ final class Logger extends AbstractLogger {
 
   @Override
   public boolean isWarnEnabled(Marker marker) {
-    return markerEnabled(System.Logger.Level.WARNING, marker) && levelEnabled(System.Logger.Level.WARNING);
+    return levelEnabled(System.Logger.Level.WARNING) && markerEnabled(System.Logger.Level.WARNING, marker);
   }
 
   @Override
@@ -106,19 +149,24 @@ final class Logger extends AbstractLogger {
 
   @Override
   public boolean isErrorEnabled(Marker marker) {
-    return markerEnabled(System.Logger.Level.ERROR, marker) && levelEnabled(System.Logger.Level.ERROR);
+    return levelEnabled(System.Logger.Level.ERROR) && markerEnabled(System.Logger.Level.ERROR, marker);
   }
 
   private boolean markerEnabled(System.Logger.Level level, Marker marker) {
-    var l = provider.markerFilters.get(marker.getName());
-    if (l != null && level.getSeverity() < l.getSeverity()) return false;
-    for (var it = marker.iterator(); it.hasNext(); ) {
-      if (!markerEnabled(level, it.next())) return false;
-    }
-    return true;
+    return levels.markerEnabled(level.getSeverity(), marker);
   }
 
   private boolean levelEnabled(System.Logger.Level level) {
     return level.getSeverity() >= effectiveLevel;
   }
+
+  private static System.Logger.Level systemLevel(Level level) {
+    return switch (level) {
+      case TRACE -> System.Logger.Level.TRACE;
+      case DEBUG -> System.Logger.Level.DEBUG;
+      case INFO -> System.Logger.Level.INFO;
+      case WARN -> System.Logger.Level.WARNING;
+      case ERROR -> System.Logger.Level.ERROR;
+    };
+  }
 }
@@ -22,26 +22,35 @@ package org.tybloco.runtime.logging;
  */
 
 import org.slf4j.ILoggerFactory;
+import org.slf4j.event.Level;
 import org.slf4j.spi.SLF4JServiceProvider;
 import org.tybloco.runtime.util.IO;
 import org.tybloco.runtime.util.Settings;
+import org.tybloco.runtime.util.SettingsSnapshot;
 
 import java.io.OutputStream;
 import java.lang.ref.ReferenceQueue;
 import java.lang.ref.WeakReference;
-import java.util.HashMap;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
-import java.util.regex.Pattern;
+import java.util.function.Consumer;
 
-import static java.lang.Integer.MAX_VALUE;
-import static java.lang.System.Logger.Level.valueOf;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
 
 public final class LoggingServiceProvider implements SLF4JServiceProvider, AutoCloseable {
 
-  final HashMap<String, System.Logger.Level> markerFilters = new HashMap<>(16, 0.5f);
-  final HashMap<Pattern, System.Logger.Level> patternFilters = new HashMap<>(16, 0.5f);
+  final Timestamps timestamps = new Timestamps(Settings.booleanSetting("TY_LOG_TIME_MICROS").orElse(Boolean.FALSE));
+  private final StackTraces stackTraces = new StackTraces(
+    Settings.intSetting("TY_LOG_STACK_MAX_FRAMES").orElse(1024),
+    Settings.intSetting("TY_LOG_STACK_MAX_DEPTH").orElse(32),
+    Settings.longSetting("TY_LOG_STACK_DEDUP_PERIOD").orElse(0L)
+  );
 
   private final ReferenceQueue<Logger> referenceQueue = new ReferenceQueue<>();
   private final FastMarkerFactory markerFactory = new FastMarkerFactory();
@@ -49,12 +58,26 @@ public final class LoggingServiceProvider implements SLF4JServiceProvider, AutoC
   private final HostContext hostContext = new HostContext();
   private final ConcurrentHashMap<String, LoggerRef> loggers = new ConcurrentHashMap<>(128, 0.5f);
   private final OutputStream outputStream;
-  private final ArrayBlockingQueue<LogRecord> queue;
-  private final LogRecordBuffer recordBuffer;
-  private final FileBuffer buffer;
+  private volatile ArrayBlockingQueue<LogRecord> queue;
+  private ArrayBlockingQueue<LogRecord> retiredQueue;
+  private LogRecordBuffer recordBuffer;
+  private final LogOutputs outputs;
   private final Thread logThread;
+  private final AtomicBoolean refreshing = new AtomicBoolean();
+  private final long configCheckPeriod = Settings.longSetting("TY_LOG_CONFIG_CHECK_PERIOD").orElse(5_000L) * 1_000_000L;
+  private final long samplingReportPeriod = Settings.longSetting("TY_LOG_SAMPLING_REPORT_PERIOD").orElse(60_000L) * 1_000_000L;
 
+  volatile LevelTable levels = LevelTable.EMPTY;
+  private volatile List<URL> configs = List.of();
+  private volatile Map<Path, FileTime> configTimes = Map.of();
+  private long lastConfigCheck = System.nanoTime();
+  private long lastSamplingReport = System.nanoTime();
+  private long lastSettingsCheck = System.nanoTime();
+  private long retiredSince;
+  private volatile int requestedQueueSize;
+  private final Consumer<SettingsSnapshot> settingsListener = s -> s.intSetting("TY_LOG_QUEUE_SIZE").ifPresent(v -> requestedQueueSize = v);
   private volatile boolean running = true;
+  private volatile LoggingStream stderr;
 
   public LoggingServiceProvider() {
     this(System.out);
@@ -64,7 +87,7 @@ public final class LoggingServiceProvider implements SLF4JServiceProvider, AutoC
     this.outputStream = outputStream;
     this.recordBuffer = new LogRecordBuffer(Settings.intSetting("TY_LOG_QUEUE_SIZE").orElse(64));
     this.queue = new ArrayBlockingQueue<>(recordBuffer.maxSize(), true);
-    this.buffer = new FileBuffer(Settings.sizeSetting("TY_MAX_LOG_RECORD_SIZE").orElse(1 << 20));
+    this.outputs = LogOutputs.fromSettings(outputStream, hostContext, timestamps, stackTraces);
     this.logThread = new Thread(this::run, "__LOG__");
     this.logThread.setDaemon(true);
     if (outputStream != System.out) initialize();
@@ -93,7 +116,10 @@ public final class LoggingServiceProvider implements SLF4JServiceProvider, AutoC
           }
         }
       });
-      return ref.get();
+      var logger = ref.get();
+      var table = levels;
+      if (logger.levels() != table) logger.update(table);
+      return logger;
     };
   }
 
@@ -131,6 +157,7 @@ public final class LoggingServiceProvider implements SLF4JServiceProvider, AutoC
       }
     }
     try {
+      checkStderr(true);
       drain();
     } catch (Throwable e) {
       e.printStackTrace(System.err);
@@ -138,11 +165,18 @@ public final class LoggingServiceProvider implements SLF4JServiceProvider, AutoC
   }
 
   private void processRecord() {
+    checkStderr(false);
+    clean();
+    checkSettings();
+    checkConfiguration();
+    checkSampling();
     if (!drain()) {
       try {
-        clean();
         var r = queue.poll(10L, MILLISECONDS);
-        if (r != null) log(r);
+        if (r != null) {
+          log(r);
+          outputs.flush();
+        }
       } catch (InterruptedException e) {
         e.printStackTrace(System.err);
       }
@@ -150,12 +184,25 @@ public final class LoggingServiceProvider implements SLF4JServiceProvider, AutoC
   }
 
   private boolean drain() {
-    var count = queue.drainTo(recordBuffer, MAX_VALUE);
+    var retired = retiredQueue;
+    if (retired != null) {
+      if (drain(retired)) {
+        retiredSince = System.nanoTime();
+      } else if (System.nanoTime() - retiredSince > configCheckPeriod) {
+        retiredQueue = null;
+      }
+    }
+    return drain(queue);
+  }
+
+  private boolean drain(ArrayBlockingQueue<LogRecord> queue) {
+    var count = queue.drainTo(recordBuffer, recordBuffer.maxSize());
     if (count > 0) {
       try {
         recordBuffer.forEach(this::log);
       } finally {
         recordBuffer.reset();
+        outputs.flush();
       }
       return true;
     } else {
@@ -175,6 +222,7 @@ public final class LoggingServiceProvider implements SLF4JServiceProvider, AutoC
       }
       synchronized (this) {
         log(record);
+        outputs.flush();
       }
     }
   }
@@ -182,43 +230,148 @@ public final class LoggingServiceProvider implements SLF4JServiceProvider, AutoC
   @Override
   public void initialize() {
     if (outputStream == System.out) {
-      System.setErr(new LoggingStream(queue, mdcAdapter));
+      var stream = new LoggingStream(
+        () -> queue,
+        mdcAdapter,
+        timestamps,
+        Settings.longSetting("TY_LOG_STDERR_LINGER").orElse(20L) * 1_000_000L,
+        Settings.sizeSetting("TY_LOG_STDERR_MAX_RECORD_SIZE").orElse(1 << 16)
+      );
+      stderr = stream;
+      System.setErr(stream);
     }
     var classLoader = Thread.currentThread().getContextClassLoader();
-    classLoader.resources("tybloco/logging.properties").forEach(url -> {
-      var properties = IO.loadProperties(url);
-      properties.forEach((ko, vo) -> {
-        if (ko instanceof String k && vo instanceof String v) {
-          if (k.startsWith("pattern.")) {
-            var idx = v.indexOf(',');
-            if (idx >= 0) {
-              try {
-                var level = valueOf(v.substring(0, idx));
-                var pattern = Pattern.compile(v.substring(idx + 1));
-                patternFilters.put(pattern, level);
-              } catch (Throwable x) {
-                throw new IllegalStateException("Unable to process " + k + " of " + url, x);
-              }
-            }
-          } else if (k.startsWith("marker.")) {
-            try {
-              var level = valueOf(v);
-              var marker = k.substring("marker.".length());
-              markerFilters.put(marker, level);
-            } catch (Throwable x) {
-              throw new IllegalStateException("Unable to process " + k + " of " + url, x);
-            }
+    var urls = new ArrayList<URL>(classLoader.resources("tybloco/logging.properties").toList());
+    Settings.setting("TY_LOG_CONFIG").filter(v -> !v.isBlank()).ifPresent(v -> urls.add(url(Path.of(v))));
+    configs = List.copyOf(urls);
+    configTimes = configTimes();
+    reloadConfiguration();
+    SettingsSnapshot.addListener(settingsListener);
+    logThread.start();
+  }
+
+  public synchronized void reloadConfiguration() {
+    var builder = new LevelTable.Builder();
+    for (var url : configs) {
+      builder.add(url, IO.loadProperties(url));
+    }
+    var table = builder.build(levels);
+    levels = table;
+    loggers.forEach((k, ref) -> {
+      var logger = ref.get();
+      if (logger != null) logger.update(table);
+    });
+  }
+
+  private void checkSettings() {
+    var time = System.nanoTime();
+    if (configCheckPeriod > 0L && time - lastSettingsCheck >= configCheckPeriod) {
+      lastSettingsCheck = time;
+      if (SettingsSnapshot.modified() && refreshing.compareAndSet(false, true)) {
+        Thread.ofVirtual().name("log-settings").start(() -> {
+          try {
+            SettingsSnapshot.refreshIfModified();
+          } finally {
+            refreshing.set(false);
           }
+        });
+      }
+    }
+    var size = requestedQueueSize;
+    var current = queue;
+    if (size > 0 && size != current.size() + current.remainingCapacity()) {
+      if (retiredQueue != null) {
+        while (drain(retiredQueue)) {
         }
-      });
+      }
+      recordBuffer = new LogRecordBuffer(size);
+      retiredQueue = current;
+      retiredSince = time;
+      queue = new ArrayBlockingQueue<>(size, true);
+      drain(current);
+    }
+  }
+
+  private void checkConfiguration() {
+    if (configCheckPeriod <= 0L || configTimes.isEmpty()) return;
+    var time = System.nanoTime();
+    if (time - lastConfigCheck < configCheckPeriod) return;
+    lastConfigCheck = time;
+    var times = configTimes();
+    if (!times.equals(configTimes)) {
+      configTimes = times;
+      reloadConfiguration();
+    }
+  }
+
+  private void checkSampling() {
+    if (samplingReportPeriod <= 0L) return;
+    var time = System.nanoTime();
+    if (time - lastSamplingReport < samplingReportPeriod) return;
+    lastSamplingReport = time;
+    loggers.forEach((k, ref) -> {
+      var logger = ref.get();
+      if (logger != null) {
+        var sampler = logger.sampler();
+        if (sampler != null) sampler.report(this::logSuppressed);
+      }
     });
-    logThread.start();
+    levels.markerSamplers().forEach(sampler -> sampler.report(this::logSuppressed));
+    outputs.flush();
+  }
+
+  private void checkStderr(boolean force) {
+    var stream = stderr;
+    if (stream == null) return;
+    stream.expire(force);
+    var dropped = stream.dropped();
+    if (dropped > 0L) {
+      var time = timestamps.now();
+      var thread = Thread.currentThread();
+      var args = new Object[] {dropped};
+      log(new LogRecord(Level.WARN, thread, time, "stderr", null, "Dropped {} stderr records", args, null, mdcAdapter));
+      outputs.flush();
+    }
+  }
+
+  private void logSuppressed(String sampler, String callSite, long suppressed) {
+    var args = new Object[] {suppressed, callSite};
+    var time = timestamps.now();
+    var thread = Thread.currentThread();
+    log(new LogRecord(Level.WARN, thread, time, sampler, null, "Suppressed {} records of \"{}\"", args, null, mdcAdapter));
+  }
+
+  private Map<Path, FileTime> configTimes() {
+    var times = new HashMap<Path, FileTime>();
+    for (var url : configs) {
+      if (!"file".equals(url.getProtocol())) continue;
+      try {
+        var path = Path.of(url.toURI());
+        try {
+          times.put(path, Files.getLastModifiedTime(path));
+        } catch (NoSuchFileException e) {
+          times.put(path, FileTime.fromMillis(0L));
+        }
+      } catch (Throwable e) {
+        e.printStackTrace(System.err);
+      }
+    }
+    return Map.copyOf(times);
+  }
+
+  private static URL url(Path path) {
+    try {
+      return path.toAbsolutePath().toUri().toURL();
+    } catch (MalformedURLException e) {
+      throw new IllegalArgumentException("Invalid log configuration path: " + path, e);
+    }
   }
 
   @Override
   public void close() {
     running = false;
-    try (buffer) {
+    SettingsSnapshot.removeListener(settingsListener);
+    try (outputs) {
       logThread.join();
       synchronized (this) {
         drain();
@@ -230,13 +383,9 @@ public final class LoggingServiceProvider implements SLF4JServiceProvider, AutoC
 
   private void log(LogRecord record) {
     try {
-      record.writeTo(buffer, hostContext);
-      buffer.rewind(outputStream);
-      outputStream.flush();
+      outputs.write(record);
     } catch (Throwable e) {
       e.printStackTrace(System.err);
-    } finally {
-      buffer.reset();
     }
   }
 
@@ -1,5 +1,6 @@
 package org.tybloco.runtime.logging;
 
+
 /*-
  * #%L
  * runtime
@@ -23,30 +24,227 @@ package org.tybloco.runtime.logging;
 
 import org.slf4j.event.Level;
 
-import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
 import java.io.PrintStream;
-import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
 import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
 
 final class LoggingStream extends PrintStream {
 
-  LoggingStream(ArrayBlockingQueue<LogRecord> queue, FastMDCAdapter mdcAdapter) {
-    super(new ByteArrayOutputStream() {
-      @Override
-      public synchronized void flush() {
-        try {
-          var message = new String(buf, 0, count, UTF_8).trim();
-          buf = new byte[0];
-          count = 0;
-          var thread = Thread.currentThread();
-          var time = Instant.ofEpochMilli(System.currentTimeMillis());
-          queue.put(new LogRecord(Level.ERROR, thread, time, "stderr", null, message, new Object[0], null, mdcAdapter));
-        } catch (Throwable e) {
-          e.printStackTrace(System.err);
+  private final Bridge bridge;
+
+  LoggingStream(ArrayBlockingQueue<LogRecord> queue, FastMDCAdapter mdcAdapter, Timestamps timestamps, long lingerNanos, int maxRecordSize) {
+    this(() -> queue, mdcAdapter, timestamps, lingerNanos, maxRecordSize);
+  }
+
+  LoggingStream(Supplier<ArrayBlockingQueue<LogRecord>> queue, FastMDCAdapter mdcAdapter, Timestamps timestamps, long lingerNanos, int maxRecordSize) {
+    this(new Bridge(queue, mdcAdapter, timestamps, lingerNanos, maxRecordSize));
+  }
+
+  private LoggingStream(Bridge bridge) {
+    super(bridge, true, UTF_8);
+    this.bridge = bridge;
+  }
+
+  void expire(boolean force) {
+    bridge.expire(force);
+  }
+
+  long dropped() {
+    return bridge.dropped.getAndSet(0L);
+  }
+
+  private static final class Bridge extends OutputStream {
+
+    private final Supplier<ArrayBlockingQueue<LogRecord>> queue;
+    private final FastMDCAdapter mdcAdapter;
+    private final Timestamps timestamps;
+    private final long lingerNanos;
+    private final int maxRecordSize;
+    private final AtomicLong dropped = new AtomicLong();
+    private final ConcurrentLinkedQueue<LineBuffer> pending = new ConcurrentLinkedQueue<>();
+    private final ThreadLocal<LineBuffer> buffers = ThreadLocal.withInitial(() -> new LineBuffer(this));
+
+    private Bridge(Supplier<ArrayBlockingQueue<LogRecord>> queue, FastMDCAdapter mdcAdapter, Timestamps timestamps, long lingerNanos, int maxRecordSize) {
+      this.queue = queue;
+      this.mdcAdapter = mdcAdapter;
+      this.timestamps = timestamps;
+      this.lingerNanos = lingerNanos;
+      this.maxRecordSize = maxRecordSize;
+    }
+
+    @Override
+    public void write(int b) {
+      buffers.get().write(b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+      buffers.get().write(b, off, len);
+    }
+
+    private void expire(boolean force) {
+      var time = System.nanoTime();
+      for (var it = pending.iterator(); it.hasNext(); ) {
+        if (it.next().expire(time, force)) it.remove();
+      }
+    }
+
+    private void enqueue(LogRecord record) {
+      if (!queue.get().offer(record)) {
+        dropped.incrementAndGet();
+      }
+    }
+  }
+
+  private static final class LineBuffer {
+
+    private final Bridge bridge;
+    private byte[] line = new byte[256];
+    private int lineLength;
+    private byte[] record = new byte[256];
+    private int recordLength;
+    private boolean scheduled;
+    private long since;
+    private long lineTime;
+    private String lineThreadName;
+    private MDCMap<String> lineMdc;
+    private MDCMap<FastMDCAdapter.Stack> lineStack;
+    private long time;
+    private long threadId;
+    private String threadName;
+    private MDCMap<String> mdc;
+    private MDCMap<FastMDCAdapter.Stack> stack;
+
+    private LineBuffer(Bridge bridge) {
+      this.bridge = bridge;
+    }
+
+    private synchronized void write(int b) {
+      put((byte) b);
+      schedule();
+    }
+
+    private synchronized void write(byte[] b, int off, int len) {
+      for (int i = off, end = off + len; i < end; i++) {
+        put(b[i]);
+      }
+      schedule();
+    }
+
+    private void put(byte c) {
+      if (c == '\n') {
+        if (lineLength == 0) capture();
+        completeLine();
+      } else if (lineLength < bridge.maxRecordSize) {
+        if (lineLength == 0) capture();
+        if (lineLength == line.length) line = Arrays.copyOf(line, Math.min(line.length * 2, bridge.maxRecordSize));
+        line[lineLength++] = c;
+      }
+    }
+
+    private void schedule() {
+      if (lineLength > 0 || recordLength > 0) {
+        since = System.nanoTime();
+        if (!scheduled) {
+          scheduled = true;
+          bridge.pending.add(this);
+        }
+      }
+    }
+
+    private void completeLine() {
+      var length = lineLength;
+      if (length > 0 && line[length - 1] == '\r') length--;
+      lineLength = 0;
+      if (recordLength > 0 && continuation(length)) {
+        append((byte) '\n');
+        append(line, length);
+      } else {
+        emit();
+        if (!blank(length)) {
+          start();
+          append(line, length);
         }
       }
-    }, true, UTF_8);
+    }
+
+    private boolean continuation(int length) {
+      if (length == 0) return false;
+      if (line[0] == '\t') return true;
+      return startsWith(length, "Caused by: ") || startsWith(length, "Suppressed: ");
+    }
+
+    private boolean startsWith(int length, String prefix) {
+      if (length < prefix.length()) return false;
+      for (int i = 0; i < prefix.length(); i++) {
+        if (line[i] != prefix.charAt(i)) return false;
+      }
+      return true;
+    }
+
+    private boolean blank(int length) {
+      for (int i = 0; i < length; i++) {
+        if (line[i] > ' ') return false;
+      }
+      return true;
+    }
+
+    private void capture() {
+      var thread = Thread.currentThread();
+      lineTime = bridge.timestamps.now();
+      threadId = thread.threadId();
+      lineThreadName = thread.getName();
+      lineMdc = bridge.mdcAdapter.map.get();
+      lineStack = bridge.mdcAdapter.queues.get();
+    }
+
+    private void start() {
+      time = lineTime;
+      threadName = lineThreadName;
+      mdc = lineMdc;
+      stack = lineStack;
+    }
+
+    private void append(byte b) {
+      if (recordLength < bridge.maxRecordSize) {
+        if (recordLength == record.length) record = Arrays.copyOf(record, Math.min(record.length * 2, bridge.maxRecordSize));
+        record[recordLength++] = b;
+      }
+    }
+
+    private void append(byte[] b, int len) {
+      var n = Math.min(len, bridge.maxRecordSize - recordLength);
+      if (n <= 0) return;
+      if (recordLength + n > record.length) record = Arrays.copyOf(record, Math.min(Math.max(record.length * 2, recordLength + n), bridge.maxRecordSize));
+      System.arraycopy(b, 0, record, recordLength, n);
+      recordLength += n;
+    }
+
+    private void emit() {
+      if (recordLength == 0) return;
+      var message = new String(record, 0, recordLength, UTF_8).strip();
+      recordLength = 0;
+      if (record.length > 65536) record = new byte[256];
+      bridge.enqueue(new LogRecord(Level.ERROR, threadId, threadName, time, "stderr", List.of(), message, null, List.of(), mdc, stack));
+      mdc = null;
+      stack = null;
+    }
+
+    private synchronized boolean expire(long now, boolean force) {
+      if (!force && now - since < bridge.lingerNanos) return false;
+      if (lineLength > 0) {
+        completeLine();
+      }
+      emit();
+      scheduled = false;
+      return true;
+    }
   }
 }
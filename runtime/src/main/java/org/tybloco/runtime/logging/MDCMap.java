@@ -0,0 +1,130 @@
+package org.tybloco.runtime.logging;
+
+/*-
+ * #%L
+ * runtime
+ * %%
+ * Copyright (C) 2023 Montoni
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import java.util.*;
+
+import static java.util.Objects.requireNonNull;
+
+final class MDCMap<V> {
+
+  private static final MDCMap<?> EMPTY = new MDCMap<>(new String[0], new Object[0]);
+
+  private final String[] keys;
+  private final Object[] values;
+
+  private MDCMap(String[] keys, Object[] values) {
+    this.keys = keys;
+    this.values = values;
+  }
+
+  @SuppressWarnings("unchecked")
+  static <V> MDCMap<V> empty() {
+    return (MDCMap<V>) EMPTY;
+  }
+
+  static <V> MDCMap<V> of(Map<String, ? extends V> map) {
+    if (map == null || map.isEmpty()) {
+      return empty();
+    }
+    var sorted = new TreeMap<String, V>(map);
+    var keys = new String[sorted.size()];
+    var values = new Object[keys.length];
+    int i = 0;
+    for (var e : sorted.entrySet()) {
+      keys[i] = e.getKey();
+      values[i++] = e.getValue();
+    }
+    return new MDCMap<>(keys, values);
+  }
+
+  int size() {
+    return keys.length;
+  }
+
+  boolean isEmpty() {
+    return keys.length == 0;
+  }
+
+  String key(int index) {
+    return keys[index];
+  }
+
+  @SuppressWarnings("unchecked")
+  V value(int index) {
+    return (V) values[index];
+  }
+
+  V get(String key) {
+    var idx = Arrays.binarySearch(keys, requireNonNull(key, "key"));
+    return idx < 0 ? null : value(idx);
+  }
+
+  MDCMap<V> with(String key, V value) {
+    var idx = Arrays.binarySearch(keys, requireNonNull(key, "key"));
+    if (idx >= 0) {
+      if (values[idx] == value) return this;
+      var newValues = values.clone();
+      newValues[idx] = value;
+      return new MDCMap<>(keys, newValues);
+    } else {
+      var pos = -(idx + 1);
+      var len = keys.length;
+      var newKeys = new String[len + 1];
+      var newValues = new Object[len + 1];
+      System.arraycopy(keys, 0, newKeys, 0, pos);
+      System.arraycopy(values, 0, newValues, 0, pos);
+      newKeys[pos] = key;
+      newValues[pos] = value;
+      System.arraycopy(keys, pos, newKeys, pos + 1, len - pos);
+      System.arraycopy(values, pos, newValues, pos + 1, len - pos);
+      return new MDCMap<>(newKeys, newValues);
+    }
+  }
+
+  MDCMap<V> without(String key) {
+    var idx = Arrays.binarySearch(keys, requireNonNull(key, "key"));
+    if (idx < 0) return this;
+    var len = keys.length;
+    if (len == 1) return empty();
+    var newKeys = new String[len - 1];
+    var newValues = new Object[len - 1];
+    System.arraycopy(keys, 0, newKeys, 0, idx);
+    System.arraycopy(values, 0, newValues, 0, idx);
+    System.arraycopy(keys, idx + 1, newKeys, idx, len - idx - 1);
+    System.arraycopy(values, idx + 1, newValues, idx, len - idx - 1);
+    return new MDCMap<>(newKeys, newValues);
+  }
+
+  TreeMap<String, V> toTreeMap() {
+    var map = new TreeMap<String, V>();
+    for (int i = 0; i < keys.length; i++) {
+      map.put(keys[i], value(i));
+    }
+    return map;
+  }
+
+  @Override
+  public String toString() {
+    return toTreeMap().toString();
+  }
+}
@@ -0,0 +1,124 @@
+package org.tybloco.runtime.logging;
+
+/*-
+ * #%L
+ * runtime
+ * %%
+ * Copyright (C) 2023 Montoni
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+final class Sampler {
+
+  private static final int MAX_CALL_SITES = 1024;
+
+  final String name;
+  private final Rule rule;
+  private final ConcurrentHashMap<String, Counter> counters = new ConcurrentHashMap<>(16, 0.5f);
+  private final Counter overflow;
+
+  Sampler(String name, Rule rule) {
+    this.name = name;
+    this.rule = rule;
+    this.overflow = new Counter(rule);
+  }
+
+  Rule rule() {
+    return rule;
+  }
+
+  boolean allow(String callSite) {
+    if (callSite == null) return overflow.allow();
+    var counter = counters.get(callSite);
+    if (counter == null) {
+      counter = counters.size() < MAX_CALL_SITES ? counters.computeIfAbsent(callSite, k -> new Counter(rule)) : overflow;
+    }
+    return counter.allow();
+  }
+
+  void report(SuppressionConsumer consumer) {
+    counters.forEach((callSite, counter) -> {
+      var suppressed = counter.suppressed.getAndSet(0L);
+      if (suppressed > 0L) consumer.accept(name, callSite, suppressed);
+    });
+    var suppressed = overflow.suppressed.getAndSet(0L);
+    if (suppressed > 0L) consumer.accept(name, "*", suppressed);
+  }
+
+  @Override
+  public String toString() {
+    return name + ":" + rule;
+  }
+
+  @FunctionalInterface
+  interface SuppressionConsumer {
+    void accept(String sampler, String callSite, long suppressed);
+  }
+
+  record Rule(long value, boolean rate) {
+
+    Rule {
+      if (value <= 0L) throw new IllegalArgumentException("Invalid sampling value: " + value);
+    }
+
+    static Rule parse(String spec) {
+      var s = spec.trim();
+      if (s.endsWith("/s")) {
+        return new Rule(Long.parseLong(s.substring(0, s.length() - 2).trim()), true);
+      } else {
+        return new Rule(Long.parseLong(s), false);
+      }
+    }
+
+    @Override
+    public String toString() {
+      return rate ? value + "/s" : "1/" + value;
+    }
+  }
+
+  private static final class Counter {
+
+    private final Rule rule;
+    private final long interval;
+    private final AtomicLong state;
+    private final AtomicLong suppressed = new AtomicLong();
+
+    private Counter(Rule rule) {
+      this.rule = rule;
+      this.interval = rule.rate ? Math.max(1L, 1_000_000_000L / rule.value) : 0L;
+      this.state = new AtomicLong(rule.rate ? Long.MIN_VALUE : 0L);
+    }
+
+    private boolean allow() {
+      if (rule.rate) {
+        while (true) {
+          var time = System.nanoTime();
+          var tat = state.get();
+          var next = Math.max(tat, time) + interval;
+          if (next - time > 1_000_000_000L) break;
+          if (state.compareAndSet(tat, next)) return true;
+        }
+      } else if (state.getAndIncrement() % rule.value == 0L) {
+        return true;
+      }
+      suppressed.incrementAndGet();
+      return false;
+    }
+  }
+}
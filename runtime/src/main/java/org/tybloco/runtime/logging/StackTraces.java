@@ -0,0 +1,194 @@
+package org.tybloco.runtime.logging;
+
+/*-
+ * #%L
+ * runtime
+ * %%
+ * Copyright (C) 2023 Montoni
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import java.util.*;
+
+final class StackTraces {
+
+  private static final int MAX_FINGERPRINTS = 4096;
+
+  private final int maxFrames;
+  private final int maxDepth;
+  private final long dedupPeriod;
+  private final HashMap<Long, Long> fingerprints = new HashMap<>(64, 0.5f);
+  private final Set<Throwable> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+
+  StackTraces(int maxFrames, int maxDepth, long dedupPeriodMillis) {
+    this.maxFrames = maxFrames;
+    this.maxDepth = maxDepth;
+    this.dedupPeriod = dedupPeriodMillis * 1_000_000L;
+  }
+
+  StackTraces copy() {
+    return new StackTraces(maxFrames, maxDepth, dedupPeriod / 1_000_000L);
+  }
+
+  void write(FileBuffer buffer, Throwable error) {
+    if (dedup()) {
+      var fingerprint = fingerprint(error);
+      if (full(fingerprint)) {
+        writeStackTrace(buffer, error);
+        buffer.write(',');
+      }
+      buffer.writeKey("error.stack_trace_hash");
+      buffer.write(':');
+      buffer.write('"');
+      buffer.writeRaw(Long.toHexString(fingerprint));
+      buffer.write('"');
+    } else {
+      writeStackTrace(buffer, error);
+    }
+  }
+
+  boolean dedup() {
+    return dedupPeriod > 0L;
+  }
+
+  boolean full(long fingerprint) {
+    var time = System.nanoTime();
+    var last = fingerprints.get(fingerprint);
+    if (last == null || time - last >= dedupPeriod) {
+      if (fingerprints.size() >= MAX_FINGERPRINTS) fingerprints.clear();
+      fingerprints.put(fingerprint, time);
+      return true;
+    } else {
+      return false;
+    }
+  }
+
+  void render(FileBuffer.Text out, Throwable error) {
+    try {
+      render(out, error, null, "", "", 0);
+    } finally {
+      visited.clear();
+    }
+  }
+
+  private void writeStackTrace(FileBuffer buffer, Throwable error) {
+    buffer.writeKey("error.stack_trace");
+    buffer.write(':');
+    buffer.write('"');
+    render(buffer.escapedText, error);
+    buffer.write('"');
+  }
+
+  private void render(FileBuffer.Text out, Throwable error, StackTraceElement[] enclosing, String caption, String prefix, int depth) {
+    if (!visited.add(error)) {
+      out.write(prefix);
+      out.write(caption);
+      out.write("[CIRCULAR REFERENCE: ");
+      writeHeader(out, error);
+      out.write("]\n");
+      return;
+    }
+    out.write(prefix);
+    out.write(caption);
+    writeHeader(out, error);
+    out.write('\n');
+    var frames = error.getStackTrace();
+    var m = frames.length - 1;
+    if (enclosing != null) {
+      var n = enclosing.length - 1;
+      while (m >= 0 && n >= 0 && frames[m].equals(enclosing[n])) {
+        m--;
+        n--;
+      }
+    }
+    var common = frames.length - 1 - m;
+    var count = Math.min(m + 1, maxFrames);
+    for (int i = 0; i < count; i++) {
+      out.write(prefix);
+      out.write("\tat ");
+      writeFrame(out, frames[i]);
+      out.write('\n');
+    }
+    if (count <= m) {
+      out.write(prefix);
+      out.write("\t... ");
+      out.writeInt(m + 1 - count);
+      out.write(" frames truncated\n");
+    }
+    if (common > 0) {
+      out.write(prefix);
+      out.write("\t... ");
+      out.writeInt(common);
+      out.write(" more\n");
+    }
+    if (depth >= maxDepth) return;
+    for (var suppressed : error.getSuppressed()) {
+      render(out, suppressed, frames, "Suppressed: ", prefix + "\t", depth + 1);
+    }
+    var cause = error.getCause();
+    if (cause != null) {
+      render(out, cause, frames, "Caused by: ", prefix, depth + 1);
+    }
+  }
+
+  private static void writeHeader(FileBuffer.Text out, Throwable error) {
+    out.write(error.getClass().getName());
+    var message = error.getLocalizedMessage();
+    if (message != null) {
+      out.write(": ");
+      out.write(message);
+    }
+  }
+
+  private static void writeFrame(FileBuffer.Text out, StackTraceElement frame) {
+    out.write(frame.getClassName());
+    out.write('.');
+    out.write(frame.getMethodName());
+    out.write('(');
+    if (frame.isNativeMethod()) {
+      out.write("Native Method");
+    } else if (frame.getFileName() == null) {
+      out.write("Unknown Source");
+    } else {
+      out.write(frame.getFileName());
+      if (frame.getLineNumber() >= 0) {
+        out.write(':');
+        out.writeInt(frame.getLineNumber());
+      }
+    }
+    out.write(')');
+  }
+
+  long fingerprint(Throwable error) {
+    var hash = 0L;
+    var depth = 0;
+    for (var e = error; e != null && depth <= maxDepth; e = e.getCause(), depth++) {
+      if (!visited.add(e)) break;
+      hash = mix(hash, e.getClass().getName().hashCode());
+      for (var frame : e.getStackTrace()) {
+        hash = mix(hash, frame.getClassName().hashCode());
+        hash = mix(hash, frame.getMethodName().hashCode());
+        hash = mix(hash, frame.getLineNumber());
+      }
+    }
+    visited.clear();
+    return hash;
+  }
+
+  private static long mix(long hash, int value) {
+    return (hash ^ value) * 0x9E3779B97F4A7C15L;
+  }
+}
@@ -0,0 +1,97 @@
+package org.tybloco.runtime.logging;
+
+/*-
+ * #%L
+ * runtime
+ * %%
+ * Copyright (C) 2023 Montoni
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import org.slf4j.Marker;
+
+final class TextEncoder implements LogEncoder {
+
+  private final Timestamps timestamps;
+  private final StackTraces stackTraces;
+
+  TextEncoder(Timestamps timestamps, StackTraces stackTraces) {
+    this.timestamps = timestamps;
+    this.stackTraces = stackTraces;
+  }
+
+  @Override
+  public void encode(LogRecord record, FileBuffer buffer) {
+    timestamps.writeUnquoted(buffer, record.time());
+    buffer.write(' ');
+    var level = record.level().toString();
+    buffer.writeRaw(level);
+    for (int i = level.length(); i < 6; i++) {
+      buffer.write(' ');
+    }
+    buffer.write('[');
+    buffer.writeRaw(record.threadName());
+    buffer.writeRaw("] ");
+    buffer.writeRaw(record.logger());
+    buffer.writeRaw(" - ");
+    buffer.writeRaw(String.valueOf(record.msg()));
+    for (var kv : record.keyValues()) {
+      if (kv.key == null) continue;
+      buffer.write(' ');
+      buffer.writeRaw(kv.key);
+      buffer.write('=');
+      buffer.writeRaw(String.valueOf(kv.value));
+    }
+    writeLabels(buffer, record);
+    writeTags(buffer, record);
+    buffer.write('\n');
+    if (record.throwable() != null) {
+      stackTraces.render(buffer.rawText, record.throwable());
+    }
+  }
+
+  private static void writeLabels(FileBuffer buffer, LogRecord record) {
+    var mdc = record.mdc();
+    if (mdc.isEmpty()) return;
+    buffer.writeRaw(" {");
+    for (int i = 0, l = mdc.size(); i < l; i++) {
+      if (i > 0) buffer.writeRaw(", ");
+      buffer.writeRaw(mdc.key(i));
+      buffer.write('=');
+      buffer.writeRaw(mdc.value(i));
+    }
+    buffer.write('}');
+  }
+
+  private static void writeTags(FileBuffer buffer, LogRecord record) {
+    var markers = record.markers();
+    if (markers.isEmpty()) return;
+    buffer.writeRaw(" [");
+    for (int i = 0, l = markers.size(); i < l; i++) {
+      if (i > 0) buffer.write(',');
+      writeTags(buffer, markers.get(i));
+    }
+    buffer.write(']');
+  }
+
+  private static void writeTags(FileBuffer buffer, Marker marker) {
+    buffer.writeRaw(marker.getName());
+    for (var it = marker.iterator(); it.hasNext(); ) {
+      buffer.write(',');
+      writeTags(buffer, it.next());
+    }
+  }
+}
@@ -0,0 +1,100 @@
+package org.tybloco.runtime.logging;
+
+/*-
+ * #%L
+ * runtime
+ * %%
+ * Copyright (C) 2023 Montoni
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import java.nio.CharBuffer;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+
+final class Timestamps {
+
+  private static final DateTimeFormatter PREFIX_FORMAT = DateTimeFormatter
+    .ofPattern("uuuu-MM-dd'T'HH:mm:ss.", Locale.ROOT)
+    .withZone(ZoneOffset.UTC);
+
+  private final Clock clock = Clock.systemUTC();
+  private final boolean micros;
+  private final int digits;
+  private char[] chars = new char[0];
+  private CharBuffer view = CharBuffer.wrap(chars);
+  private long second = Long.MIN_VALUE;
+
+  Timestamps(boolean micros) {
+    this.micros = micros;
+    this.digits = micros ? 6 : 3;
+  }
+
+  boolean micros() {
+    return micros;
+  }
+
+  long now() {
+    if (micros) {
+      var instant = clock.instant();
+      return instant.getEpochSecond() * 1_000_000L + instant.getNano() / 1_000;
+    } else {
+      return System.currentTimeMillis() * 1_000L;
+    }
+  }
+
+  void write(FileBuffer buffer, long time) {
+    fill(time);
+    buffer.write(view.clear());
+  }
+
+  void writeUnquoted(FileBuffer buffer, long time) {
+    fill(time);
+    buffer.write(view.clear().limit(chars.length - 1).position(1));
+  }
+
+  private void fill(long time) {
+    var sec = Math.floorDiv(time, 1_000_000L);
+    var fraction = (int) Math.floorMod(time, 1_000_000L);
+    if (sec != second) {
+      update(sec);
+    }
+    if (!micros) {
+      fraction /= 1_000;
+    }
+    var end = chars.length - 2;
+    for (int i = end - 1, l = end - digits; i >= l; i--, fraction /= 10) {
+      chars[i] = (char) ('0' + fraction % 10);
+    }
+  }
+
+  private void update(long sec) {
+    var prefix = PREFIX_FORMAT.format(Instant.ofEpochSecond(sec));
+    var len = prefix.length() + digits + 3;
+    if (chars.length != len) {
+      chars = new char[len];
+      view = CharBuffer.wrap(chars);
+      chars[0] = '"';
+      chars[len - 2] = 'Z';
+      chars[len - 1] = '"';
+    }
+    prefix.getChars(0, prefix.length(), chars, 1);
+    second = sec;
+  }
+}
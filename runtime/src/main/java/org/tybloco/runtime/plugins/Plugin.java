@@ -26,7 +26,8 @@ import org.tybloco.runtime.application.ApplicationContext;
 public interface Plugin {
 
   default int getPriority() {
-    return Integer.MAX_VALUE;
+    var info = getClass().getAnnotation(PluginInfo.class);
+    return info == null ? Integer.MAX_VALUE : info.priority();
   }
 
   void run(ApplicationContext context);
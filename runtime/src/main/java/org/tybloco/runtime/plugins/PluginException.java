@@ -23,7 +23,11 @@ package org.tybloco.runtime.plugins;
 
 public final class PluginException extends RuntimeException {
 
+  public PluginException(String pluginType, Throwable cause) {
+    super("Unable to load plugin " + pluginType, cause);
+  }
+
   public PluginException(Class<? extends Plugin> pluginType, Throwable cause) {
-    super("Unable to load plugin " + pluginType.getName(), cause);
+    this(pluginType.getName(), cause);
   }
 }
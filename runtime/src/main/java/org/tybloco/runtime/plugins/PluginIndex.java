@@ -0,0 +1,114 @@
+package org.tybloco.runtime.plugins;
+
+/*-
+ * #%L
+ * runtime
+ * %%
+ * Copyright (C) 2023 Montoni
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+public record PluginIndex(String type, int priority) {
+
+  public static final String RESOURCE = "META-INF/tybloco/plugins.idx";
+
+  public static final String SERVICES = "META-INF/services/" + Plugin.class.getName();
+
+  public static List<PluginIndex> load(ClassLoader classLoader) {
+    return load(classLoader, false);
+  }
+
+  public static List<PluginIndex> load(ClassLoader classLoader, boolean services) {
+    var entries = new LinkedHashMap<String, PluginIndex>();
+    try {
+      var indexed = new HashSet<String>();
+      for (var url : Collections.list(classLoader.getResources(RESOURCE))) {
+        indexed.add(root(url, RESOURCE));
+        try (var is = url.openStream()) {
+          read(is).forEach(entry -> entries.putIfAbsent(entry.type, entry));
+        }
+      }
+      if (services) {
+        for (var url : Collections.list(classLoader.getResources(SERVICES))) {
+          if (indexed.contains(root(url, SERVICES))) continue;
+          try (var is = url.openStream()) {
+            read(is).forEach(entry -> entries.putIfAbsent(entry.type, new PluginIndex(entry.type, priority(entry.type, classLoader))));
+          }
+        }
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return List.copyOf(entries.values());
+  }
+
+  public static List<PluginIndex> read(InputStream inputStream) throws IOException {
+    var entries = new ArrayList<PluginIndex>();
+    var reader = new BufferedReader(new InputStreamReader(inputStream, UTF_8));
+    for (var line = reader.readLine(); line != null; line = reader.readLine()) {
+      var entry = parse(line);
+      if (entry != null) entries.add(entry);
+    }
+    return entries;
+  }
+
+  public static String format(List<PluginIndex> entries) {
+    var sorted = new ArrayList<>(entries);
+    sorted.sort((e1, e2) -> e1.priority != e2.priority ? Integer.compare(e1.priority, e2.priority) : e1.type.compareTo(e2.type));
+    var builder = new StringBuilder();
+    for (var entry : sorted) {
+      builder.append(entry.priority).append('\t').append(entry.type).append('\n');
+    }
+    return builder.toString();
+  }
+
+  private static int priority(String type, ClassLoader classLoader) {
+    try {
+      var info = Class.forName(type, false, classLoader).getAnnotation(PluginInfo.class);
+      return info == null ? Integer.MAX_VALUE : info.priority();
+    } catch (ClassNotFoundException | LinkageError e) {
+      return Integer.MAX_VALUE;
+    }
+  }
+
+  private static String root(URL url, String resource) {
+    var s = url.toString();
+    return s.substring(0, s.length() - resource.length());
+  }
+
+  private static PluginIndex parse(String line) {
+    var hash = line.indexOf('#');
+    var l = (hash < 0 ? line : line.substring(0, hash)).strip();
+    if (l.isEmpty()) return null;
+    var tab = l.indexOf('\t');
+    if (tab < 0) return new PluginIndex(l, Integer.MAX_VALUE);
+    return new PluginIndex(l.substring(tab + 1).strip(), Integer.parseInt(l.substring(0, tab).strip()));
+  }
+}
@@ -0,0 +1,105 @@
+package org.tybloco.runtime.plugins;
+
+/*-
+ * #%L
+ * runtime
+ * %%
+ * Copyright (C) 2023 Montoni
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.tools.Diagnostic;
+import javax.tools.StandardLocation;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Set;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+public final class PluginIndexProcessor extends AbstractProcessor {
+
+  private final ArrayList<PluginIndex> entries = new ArrayList<>();
+
+  @Override
+  public Set<String> getSupportedAnnotationTypes() {
+    return Set.of(PluginInfo.class.getName());
+  }
+
+  @Override
+  public SourceVersion getSupportedSourceVersion() {
+    return SourceVersion.latestSupported();
+  }
+
+  @Override
+  public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+    if (roundEnv.processingOver()) {
+      write();
+      return false;
+    }
+    var elements = processingEnv.getElementUtils();
+    var types = processingEnv.getTypeUtils();
+    var pluginType = elements.getTypeElement(Plugin.class.getName()).asType();
+    for (var element : roundEnv.getElementsAnnotatedWith(PluginInfo.class)) {
+      if (element.getKind() != ElementKind.CLASS
+        || !element.getModifiers().contains(Modifier.PUBLIC)
+        || element.getModifiers().contains(Modifier.ABSTRACT)
+        || !types.isAssignable(element.asType(), pluginType)) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "@PluginInfo requires a public concrete Plugin class", element);
+        continue;
+      }
+      var type = (TypeElement) element;
+      var priority = type.getAnnotation(PluginInfo.class).priority();
+      entries.add(new PluginIndex(elements.getBinaryName(type).toString(), priority));
+    }
+    return true;
+  }
+
+  private void write() {
+    if (entries.isEmpty()) return;
+    var filer = processingEnv.getFiler();
+    var merged = new LinkedHashMap<String, PluginIndex>();
+    for (var entry : entries) {
+      merged.put(entry.type(), entry);
+    }
+    try {
+      var existing = filer.getResource(StandardLocation.CLASS_OUTPUT, "", PluginIndex.RESOURCE);
+      try (var is = existing.openInputStream()) {
+        var elements = processingEnv.getElementUtils();
+        for (var entry : PluginIndex.read(is)) {
+          var type = elements.getTypeElement(entry.type().replace('$', '.'));
+          if (type != null && type.getAnnotation(PluginInfo.class) != null) merged.putIfAbsent(entry.type(), entry);
+        }
+      }
+    } catch (IOException | IllegalArgumentException ignore) {
+    }
+    try {
+      var file = filer.createResource(StandardLocation.CLASS_OUTPUT, "", PluginIndex.RESOURCE);
+      try (var os = file.openOutputStream()) {
+        os.write(PluginIndex.format(List.copyOf(merged.values())).getBytes(UTF_8));
+      }
+    } catch (IOException e) {
+      processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Unable to write plugin index: " + e);
+    }
+  }
+}
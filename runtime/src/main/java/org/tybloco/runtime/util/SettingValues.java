@@ -0,0 +1,121 @@
+package org.tybloco.runtime.util;
+
+/*-
+ * #%L
+ * runtime
+ * %%
+ * Copyright (C) 2023 Montoni
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import java.time.Duration;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+final class SettingValues {
+
+  private SettingValues() {
+  }
+
+  static String propertyName(String name) {
+    return name.toLowerCase(Locale.ROOT).replace('_', '.');
+  }
+
+  static String settingName(String property) {
+    return property.toUpperCase(Locale.ROOT).replace('.', '_');
+  }
+
+  static int parseInt(String name, String v) {
+    try {
+      return Integer.parseInt(v.strip());
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("Unable to parse %s as int: %s".formatted(v, name), e);
+    }
+  }
+
+  static long parseLong(String name, String v) {
+    try {
+      return Long.parseLong(v.strip());
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("Unable to parse %s as long: %s".formatted(v, name), e);
+    }
+  }
+
+  static long parseSize(String name, String value) {
+    var v = value.strip();
+    try {
+      var suffix = Character.toLowerCase(v.charAt(v.length() - 1));
+      if (suffix == 'b') {
+        v = v.substring(0, v.length() - 1);
+        suffix = Character.toLowerCase(v.charAt(v.length() - 1));
+      }
+      if (Character.isLetter(suffix)) v = v.substring(0, v.length() - 1).strip();
+      var rawSize = Long.parseLong(v);
+      return switch (suffix) {
+        case 'k' -> Math.multiplyExact(rawSize, 1L << 10);
+        case 'm' -> Math.multiplyExact(rawSize, 1L << 20);
+        case 'g' -> Math.multiplyExact(rawSize, 1L << 30);
+        case 't' -> Math.multiplyExact(rawSize, 1L << 40);
+        default -> {
+          if (Character.isLetter(suffix)) throw new NumberFormatException("Unknown size suffix: " + suffix);
+          yield rawSize;
+        }
+      };
+    } catch (NumberFormatException | ArithmeticException | IndexOutOfBoundsException e) {
+      throw new IllegalArgumentException("Unable to parse %s as size: %s".formatted(value, name), e);
+    }
+  }
+
+  static int parseIntSize(String name, String value) {
+    var size = parseSize(name, value);
+    if (size > Integer.MAX_VALUE || size < Integer.MIN_VALUE) {
+      throw new IllegalArgumentException("Size %s is out of int range: %s".formatted(value, name));
+    }
+    return (int) size;
+  }
+
+  static Duration parseDuration(String name, String value) {
+    var v = value.strip().toLowerCase(Locale.ROOT);
+    try {
+      if (v.startsWith("p")) return Duration.parse(v);
+      var i = v.length();
+      while (i > 0 && Character.isLetter(v.charAt(i - 1))) i--;
+      var amount = Long.parseLong(v.substring(0, i).strip());
+      return switch (v.substring(i)) {
+        case "ns" -> Duration.ofNanos(amount);
+        case "us" -> Duration.ofNanos(Math.multiplyExact(amount, 1_000L));
+        case "", "ms" -> Duration.ofMillis(amount);
+        case "s" -> Duration.ofSeconds(amount);
+        case "m" -> Duration.ofMinutes(amount);
+        case "h" -> Duration.ofHours(amount);
+        case "d" -> Duration.ofDays(amount);
+        default -> throw new NumberFormatException("Unknown duration unit: " + v.substring(i));
+      };
+    } catch (NumberFormatException | ArithmeticException | DateTimeParseException e) {
+      throw new IllegalArgumentException("Unable to parse %s as duration: %s".formatted(value, name), e);
+    }
+  }
+
+  static List<String> parseList(String value) {
+    return Arrays.stream(value.split(",")).map(String::strip).filter(e -> !e.isEmpty()).toList();
+  }
+
+  static boolean parseBoolean(String value) {
+    return "true".equalsIgnoreCase(value.strip());
+  }
+}
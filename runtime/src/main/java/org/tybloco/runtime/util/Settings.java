@@ -21,67 +21,44 @@ package org.tybloco.runtime.util;
  * #L%
  */
 
+import java.time.Duration;
 import java.util.*;
 
-import static java.util.regex.Pattern.compile;
-import static java.util.stream.Collectors.joining;
-
 public interface Settings {
 
   static Optional<String> setting(String name) {
-    var propName = compile("_").splitAsStream(name).map(String::toLowerCase).collect(joining("."));
-    var propValue = System.getProperty(propName);
-    if (propValue != null) {
-      return Optional.of(propValue);
-    }
-    return Optional.ofNullable(System.getenv(name));
+    return snapshot().setting(name);
   }
 
   static OptionalInt intSetting(String name) {
-    return setting(name)
-      .map(v -> {
-        try {
-          return OptionalInt.of(Integer.parseInt(v));
-        } catch (NumberFormatException e) {
-          throw new IllegalArgumentException("Unable to parse %s as int: %s".formatted(v, name), e);
-        }
-      })
-      .orElse(OptionalInt.empty());
+    return snapshot().intSetting(name);
   }
 
   static OptionalLong longSetting(String name) {
-    return setting(name)
-      .map(v -> {
-        try {
-          return OptionalLong.of(Long.parseLong(v));
-        } catch (NumberFormatException e) {
-          throw new IllegalArgumentException("Unable to parse %s as long: %s".formatted(v, name), e);
-        }
-      })
-      .orElse(OptionalLong.empty());
+    return snapshot().longSetting(name);
   }
 
   static OptionalInt sizeSetting(String name) {
-    return setting(name)
-      .filter(n -> !n.isBlank())
-      .map(v -> {
-        var suffix = Character.toLowerCase(v.charAt(v.length() - 1));
-        try {
-          if (Character.isLetter(suffix)) v = v.substring(0, v.length() - 1);
-          var rawSize = Integer.parseInt(v);
-          return OptionalInt.of(switch (suffix) {
-            case 'k' -> rawSize << 10;
-            case 'm' -> rawSize << 20;
-            default -> rawSize;
-          });
-        } catch (NumberFormatException e) {
-          throw new IllegalArgumentException("Unable to parse %s as size: %s".formatted(v, name), e);
-        }
-      })
-      .orElse(OptionalInt.empty());
+    return snapshot().sizeSetting(name);
+  }
+
+  static OptionalLong longSizeSetting(String name) {
+    return snapshot().longSizeSetting(name);
+  }
+
+  static Optional<Duration> durationSetting(String name) {
+    return snapshot().durationSetting(name);
+  }
+
+  static List<String> listSetting(String name) {
+    return snapshot().listSetting(name);
   }
 
   static Optional<Boolean> booleanSetting(String name) {
-    return setting(name).map("true"::equalsIgnoreCase);
+    return snapshot().booleanSetting(name);
+  }
+
+  static SettingsSnapshot snapshot() {
+    return SettingsSnapshot.current();
   }
 }
@@ -0,0 +1,190 @@
+package org.tybloco.runtime.util;
+
+/*-
+ * #%L
+ * runtime
+ * %%
+ * Copyright (C) 2023 Montoni
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+public final class SettingsSnapshot {
+
+  private static final CopyOnWriteArrayList<Consumer<? super SettingsSnapshot>> LISTENERS = new CopyOnWriteArrayList<>();
+  private static volatile SettingsSnapshot current;
+
+  private final Map<String, String> values;
+  private final Path file;
+  private final FileTime fileTime;
+  private final ConcurrentHashMap<String, Optional<?>> parsed = new ConcurrentHashMap<>(64, 0.5f);
+
+  private SettingsSnapshot(Map<String, String> values, Path file, FileTime fileTime) {
+    this.values = values;
+    this.file = file;
+    this.fileTime = fileTime;
+  }
+
+  public static SettingsSnapshot current() {
+    var snapshot = current;
+    if (snapshot == null) {
+      synchronized (SettingsSnapshot.class) {
+        snapshot = current;
+        if (snapshot == null) current = snapshot = load();
+      }
+    }
+    return snapshot;
+  }
+
+  public static synchronized SettingsSnapshot refresh() {
+    var old = current();
+    var snapshot = load();
+    if (snapshot.values.equals(old.values)) return old;
+    current = snapshot;
+    for (var listener : LISTENERS) {
+      try {
+        listener.accept(snapshot);
+      } catch (Throwable e) {
+        e.printStackTrace(System.err);
+      }
+    }
+    return snapshot;
+  }
+
+  public static SettingsSnapshot refreshIfModified() {
+    return modified() ? refresh() : current();
+  }
+
+  public static boolean modified() {
+    var snapshot = current();
+    var file = settingsFile();
+    return !Objects.equals(file, snapshot.file) || !Objects.equals(fileTime(file), snapshot.fileTime);
+  }
+
+  public static void addListener(Consumer<? super SettingsSnapshot> listener) {
+    LISTENERS.add(listener);
+  }
+
+  public static void removeListener(Consumer<? super SettingsSnapshot> listener) {
+    LISTENERS.remove(listener);
+  }
+
+  public Map<String, String> values() {
+    return values;
+  }
+
+  public Optional<String> setting(String name) {
+    return Optional.ofNullable(values.get(name));
+  }
+
+  public OptionalInt intSetting(String name) {
+    return cached("int", name, v -> SettingValues.parseInt(name, v)).map(OptionalInt::of).orElse(OptionalInt.empty());
+  }
+
+  public OptionalLong longSetting(String name) {
+    return cached("long", name, v -> SettingValues.parseLong(name, v)).map(OptionalLong::of).orElse(OptionalLong.empty());
+  }
+
+  public OptionalInt sizeSetting(String name) {
+    return cached("intSize", name, v -> SettingValues.parseIntSize(name, v)).map(OptionalInt::of).orElse(OptionalInt.empty());
+  }
+
+  public OptionalLong longSizeSetting(String name) {
+    return cached("size", name, v -> SettingValues.parseSize(name, v)).map(OptionalLong::of).orElse(OptionalLong.empty());
+  }
+
+  public Optional<Duration> durationSetting(String name) {
+    return cached("duration", name, v -> SettingValues.parseDuration(name, v));
+  }
+
+  public List<String> listSetting(String name) {
+    return cached("list", name, SettingValues::parseList).orElse(List.of());
+  }
+
+  public Optional<Boolean> booleanSetting(String name) {
+    return cached("boolean", name, SettingValues::parseBoolean);
+  }
+
+  @SuppressWarnings("unchecked")
+  private <T> Optional<T> cached(String kind, String name, Function<String, T> parser) {
+    var key = kind + ':' + name;
+    var v = parsed.get(key);
+    if (v == null) {
+      var value = values.get(name);
+      v = value == null || value.isBlank() ? Optional.empty() : Optional.of(parser.apply(value));
+      parsed.putIfAbsent(key, v);
+    }
+    return (Optional<T>) v;
+  }
+
+  private static SettingsSnapshot load() {
+    var values = new TreeMap<String, String>();
+    System.getenv().forEach((k, v) -> {
+      if (isSetting(k)) values.put(k, v);
+    });
+    var file = settingsFile();
+    var fileTime = fileTime(file);
+    if (fileTime != null) {
+      var properties = new Properties();
+      try (Reader reader = Files.newBufferedReader(file, UTF_8)) {
+        properties.load(reader);
+      } catch (IOException e) {
+        e.printStackTrace(System.err);
+      }
+      properties.forEach((k, v) -> values.put(SettingValues.settingName(k.toString()), v.toString()));
+    }
+    System.getProperties().forEach((k, v) -> {
+      var name = SettingValues.settingName(k.toString());
+      if (isSetting(name)) values.put(name, v.toString());
+    });
+    return new SettingsSnapshot(Collections.unmodifiableMap(values), file, fileTime);
+  }
+
+  private static Path settingsFile() {
+    var value = System.getProperty(SettingValues.propertyName("TY_SETTINGS_FILE"), System.getenv("TY_SETTINGS_FILE"));
+    return value == null || value.isBlank() ? null : Path.of(value);
+  }
+
+  private static boolean isSetting(String name) {
+    return name.startsWith("TY_") || name.startsWith("TYBLOCO_");
+  }
+
+  private static FileTime fileTime(Path file) {
+    if (file == null) return null;
+    try {
+      return Files.getLastModifiedTime(file);
+    } catch (NoSuchFileException e) {
+      return null;
+    } catch (IOException e) {
+      e.printStackTrace(System.err);
+      return null;
+    }
+  }
+}
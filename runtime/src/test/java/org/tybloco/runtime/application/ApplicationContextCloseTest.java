@@ -0,0 +1,169 @@
+package org.tybloco.runtime.application;
+
+/*-
+ * #%L
+ * runtime
+ * %%
+ * Copyright (C) 2023 Montoni
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import org.junit.jupiter.api.Test;
+import org.tybloco.runtime.exception.ApplicationCloseException;
+import org.tybloco.runtime.exception.CloseTimeoutException;
+import org.tybloco.runtime.util.SettingsSnapshot;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ApplicationContextCloseTest {
+
+  @Test
+  void independentResourcesCloseInParallel() {
+    var context = new ApplicationContext();
+    var events = new ConcurrentLinkedQueue<String>();
+    new StartupPlanner(context)
+      .add("root", () -> slow("root", events))
+      .add("a", List.of("root"), () -> slow("a", events))
+      .add("b", List.of("root"), () -> slow("b", events))
+      .add("c", List.of("root"), () -> slow("c", events))
+      .start();
+    var start = System.nanoTime();
+    context.close();
+    var elapsed = (System.nanoTime() - start) / 1_000_000L;
+    assertTrue(elapsed < 550L, () -> "Elapsed " + elapsed);
+    assertEquals("root", List.copyOf(events).get(3));
+  }
+
+  @Test
+  void unplannedDependentsCloseFirst() {
+    var context = new ApplicationContext();
+    var events = new ConcurrentLinkedQueue<String>();
+    context.block("a", () -> (AutoCloseable) () -> events.add("a"));
+    context.block("b", () -> {
+      context.block("a");
+      return (AutoCloseable) () -> events.add("b");
+    });
+    context.block("a", () -> (AutoCloseable) () -> events.add("x"));
+    context.close();
+    assertEquals(List.of("b", "a"), List.copyOf(events));
+  }
+
+  @Test
+  void independentUnplannedResourcesCloseConcurrently() {
+    var context = new ApplicationContext();
+    var latch = new CountDownLatch(2);
+    context.block("a", () -> (AutoCloseable) () -> await(latch));
+    context.block("b", () -> (AutoCloseable) () -> await(latch));
+    context.close();
+    assertEquals(0L, latch.getCount());
+  }
+
+  @Test
+  void unplannedDependenciesAreEvicted() {
+    var context = new ApplicationContext();
+    var events = new ConcurrentLinkedQueue<String>();
+    context.block("a", () -> (AutoCloseable) () -> events.add("a"));
+    context.block("c", () -> {
+      context.block("b", () -> {
+        context.block("a");
+        return (AutoCloseable) () -> events.add("b");
+      });
+      return (AutoCloseable) () -> events.add("c");
+    });
+    context.block("d", () -> (AutoCloseable) () -> events.add("d"));
+    assertEquals(Set.of("a", "b", "c"), context.evict(List.of("a")));
+    assertEquals(List.of("c", "b", "a"), List.copyOf(events));
+    assertEquals(Set.of("d"), context.affected(List.of("d")));
+  }
+
+  @Test
+  void evictDrainsBeforeClose() {
+    var context = new ApplicationContext();
+    var events = new ConcurrentLinkedQueue<String>();
+    context.block("a", () -> new DrainableResource("a", events));
+    context.block("b", () -> new DrainableResource("b", events));
+    context.evict(List.of("a"));
+    assertEquals(List.of("drain a", "await a", "close a"), List.copyOf(events));
+    assertTrue(context.isRunning());
+  }
+
+  @Test
+  void perResourceTimeout() {
+    System.setProperty("ty.close.timeout", "100");
+    SettingsSnapshot.refresh();
+    try {
+      var context = new ApplicationContext();
+      var events = new ConcurrentLinkedQueue<String>();
+      new StartupPlanner(context)
+        .add("root", () -> (AutoCloseable) () -> events.add("root"))
+        .add("stuck", List.of("root"), () -> (AutoCloseable) () -> Thread.sleep(10_000L))
+        .start();
+      var e = assertThrows(ApplicationCloseException.class, context::close);
+      var timeouts = Arrays.stream(e.getSuppressed())
+        .map(t -> assertInstanceOf(CloseTimeoutException.class, t).resource)
+        .toList();
+      assertEquals(List.of("stuck"), timeouts);
+      assertEquals(List.of("root"), List.copyOf(events));
+    } finally {
+      System.clearProperty("ty.close.timeout");
+      SettingsSnapshot.refresh();
+    }
+  }
+
+  private static void await(CountDownLatch latch) throws InterruptedException {
+    latch.countDown();
+    if (!latch.await(10L, TimeUnit.SECONDS)) throw new IllegalStateException("Closed sequentially");
+  }
+
+  private static AutoCloseable slow(String name, ConcurrentLinkedQueue<String> events) {
+    return () -> {
+      Thread.sleep(200L);
+      events.add(name);
+    };
+  }
+
+  private record DrainableResource(String name, ConcurrentLinkedQueue<String> events) implements Drainable, AutoCloseable {
+
+    @Override
+    public void drain() {
+      events.add("drain " + name);
+    }
+
+    @Override
+    public boolean awaitDrained(Duration timeout) {
+      events.add("await " + name);
+      return true;
+    }
+
+    @Override
+    public long dropped() {
+      return 0L;
+    }
+
+    @Override
+    public void close() {
+      events.add("close " + name);
+    }
+  }
+}
@@ -0,0 +1,98 @@
+package org.tybloco.runtime.application;
+
+/*-
+ * #%L
+ * runtime
+ * %%
+ * Copyright (C) 2023 Montoni
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ApplicationContextSlotsTest {
+
+  @Test
+  void slotsShareInstancesWithNames() {
+    var context = new ApplicationContext(Thread.currentThread(), 2, 1);
+    var key = new BlockKey<StringBuilder>(1, "b");
+    var created = new AtomicInteger();
+    StringBuilder b = context.block(key, () -> {
+      created.incrementAndGet();
+      return new StringBuilder("b");
+    });
+    assertSame(b, context.block(key, StringBuilder::new));
+    assertSame(b, context.block(key));
+    assertSame(b, context.block("b"));
+    assertEquals(1, created.get());
+  }
+
+  @Test
+  void slotsOutOfRangeFallBackToNames() {
+    var context = new ApplicationContext();
+    var key = new BlockKey<String>(5, "a");
+    assertThrows(NoSuchElementException.class, () -> context.block(key));
+    assertEquals("x", context.block(key, () -> "x"));
+    assertEquals("x", context.block(key));
+    var out = new OutputKey<String>(3, "a", "out");
+    assertEquals("o", context.output(out, () -> "o"));
+    assertEquals("o", context.output("a", "out", () -> "z"));
+  }
+
+  @Test
+  void concurrentEvictAndLookup() throws Exception {
+    var context = new ApplicationContext(Thread.currentThread(), 1, 1);
+    var key = new BlockKey<Object>(0, "b");
+    var out = new OutputKey<Object>(0, "b", "out");
+    var stop = new AtomicBoolean();
+    var lookups = new Thread[4];
+    for (int i = 0; i < lookups.length; i++) {
+      lookups[i] = Thread.ofPlatform().start(() -> {
+        while (!stop.get()) {
+          context.block(key, Object::new);
+          context.output(out, Object::new);
+        }
+      });
+    }
+    try {
+      for (int i = 0; i < 20_000; i++) {
+        context.evict(List.of("b"));
+      }
+    } finally {
+      stop.set(true);
+      for (var thread : lookups) {
+        thread.join();
+      }
+    }
+    var b = context.block("b", Object::new);
+    assertSame(b, context.block(key));
+    assertSame(b, context.block(key, Object::new));
+    var o = context.output("b", "out", Object::new);
+    assertSame(o, context.output(out, Object::new));
+  }
+
+  @Test
+  void negativeSlot() {
+    assertThrows(IllegalArgumentException.class, () -> new BlockKey<String>(-1, "a"));
+  }
+}
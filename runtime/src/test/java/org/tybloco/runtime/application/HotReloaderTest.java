@@ -0,0 +1,197 @@
+package org.tybloco.runtime.application;
+
+/*-
+ * #%L
+ * runtime
+ * %%
+ * Copyright (C) 2023 Montoni
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.tybloco.runtime.exception.ApplicationCloseException;
+import org.tybloco.runtime.exception.ReloadException;
+import org.tybloco.runtime.plugins.Plugin;
+import org.tybloco.runtime.plugins.PluginException;
+
+import javax.tools.ToolProvider;
+import java.io.IOException;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HotReloaderTest {
+
+  private static final String V2 = """
+    context.block("constant", () -> "v2");
+    context.block("plugin", () -> this);
+    """;
+
+  @Test
+  void reloadSubgraph(@TempDir Path dir) throws IOException {
+    compilePlugin(dir, V2);
+    var context = new ApplicationContext();
+    var events = new ConcurrentLinkedQueue<String>();
+    new StartupPlanner(context)
+      .add("constant", () -> resource("constant", events))
+      .add("sink", List.of("constant"), () -> resource("sink", events))
+      .add("other", () -> resource("other", events))
+      .start();
+    var other = context.block("other");
+    try (var reloader = new HotReloader(context)) {
+      assertEquals(Set.of("constant", "sink"), reloader.reload(List.of("constant", "sink"), List.of(dir)));
+      assertEquals(List.of("close sink", "close constant"), List.copyOf(events));
+      assertEquals("v2", context.block("constant"));
+      Object plugin = context.block("plugin");
+      assertEquals("reload-1", plugin.getClass().getClassLoader().getName());
+      assertSame(other, context.block("other"));
+    }
+    events.clear();
+    context.close();
+    assertEquals(List.of("close other"), List.copyOf(events));
+  }
+
+  @Test
+  void supersededGenerationsAreClosed(@TempDir Path dir1, @TempDir Path dir2) throws IOException {
+    compilePlugin(dir1, V2);
+    compilePlugin(dir2, V2);
+    var context = new ApplicationContext();
+    try (var reloader = new HotReloader(context)) {
+      reloader.reload(List.of(), List.of(dir1));
+      Object first = context.block("plugin");
+      var loader = (URLClassLoader) first.getClass().getClassLoader();
+      assertNotNull(loader.findResource("ReloadedPlugin.class"));
+      reloader.reload(List.of("plugin", "constant"), List.of(dir2));
+      Object second = context.block("plugin");
+      assertEquals("reload-2", second.getClass().getClassLoader().getName());
+      assertNull(loader.findResource("ReloadedPlugin.class"));
+    }
+  }
+
+  @Test
+  void failedReloadRestoresPreviousGeneration(@TempDir Path dir1, @TempDir Path dir2) throws IOException {
+    compilePlugin(dir1, V2);
+    compilePlugin(dir2, """
+      context.block("partial", () -> "p");
+      throw new IllegalStateException("broken");
+      """);
+    var context = new ApplicationContext();
+    try (var reloader = new HotReloader(context)) {
+      reloader.reload(List.of(), List.of(dir1));
+      var e = assertThrows(ReloadException.class, () -> reloader.reload(List.of("plugin", "constant"), List.of(dir2)));
+      assertEquals(Set.of(), e.missing);
+      assertInstanceOf(PluginException.class, e.getCause());
+      Object plugin = context.block("plugin");
+      assertEquals("reload-1", plugin.getClass().getClassLoader().getName());
+      assertEquals("v2", context.block("constant"));
+      assertThrows(NoSuchElementException.class, () -> context.block("partial"));
+    }
+  }
+
+  @Test
+  void failedReloadReportsMissingBlocks(@TempDir Path dir) throws IOException {
+    compilePlugin(dir, "throw new IllegalStateException(\"broken\");");
+    var context = new ApplicationContext();
+    var events = new ConcurrentLinkedQueue<String>();
+    new StartupPlanner(context)
+      .add("constant", () -> resource("constant", events))
+      .add("sink", List.of("constant"), () -> resource("sink", events))
+      .start();
+    try (var reloader = new HotReloader(context)) {
+      var e = assertThrows(ReloadException.class, () -> reloader.reload(List.of("constant", "sink"), List.of(dir)));
+      assertEquals(Set.of("constant", "sink"), e.missing);
+    }
+  }
+
+  @Test
+  void dependentsOfEarlierGenerationsAreRecreated(@TempDir Path dir1, @TempDir Path dir2) throws IOException {
+    compilePlugin(dir1, """
+      context.block("dependent", () -> "d" + context.block("constant"));
+      """);
+    compilePlugin(dir2, V2);
+    var context = new ApplicationContext();
+    context.block("constant", () -> "v1");
+    try (var reloader = new HotReloader(context)) {
+      reloader.reload(List.of(), List.of(dir1));
+      assertEquals("dv1", context.block("dependent"));
+      assertEquals(Set.of("constant", "dependent"), reloader.reload(List.of("constant"), List.of(dir2)));
+      assertEquals("v2", context.block("constant"));
+      assertEquals("dv2", context.block("dependent"));
+      assertEquals(Set.of("constant", "dependent"), reloader.reload(List.of("constant"), List.of(dir2)));
+      assertEquals("dv2", context.block("dependent"));
+    }
+  }
+
+  @Test
+  void refuseToDropDependentsOutsideReloadedJars(@TempDir Path dir) throws IOException {
+    compilePlugin(dir, V2);
+    var context = new ApplicationContext();
+    var events = new ConcurrentLinkedQueue<String>();
+    new StartupPlanner(context)
+      .add("constant", () -> resource("constant", events))
+      .add("sink", List.of("constant"), () -> resource("sink", events))
+      .start();
+    var constant = context.block("constant");
+    try (var reloader = new HotReloader(context)) {
+      var e = assertThrows(IllegalStateException.class, () -> reloader.reload(List.of("constant"), List.of(dir)));
+      assertTrue(e.getMessage().contains("[sink]"), e.getMessage());
+      assertTrue(events.isEmpty());
+      assertSame(constant, context.block("constant"));
+      assertNotNull(context.block("sink"));
+    }
+  }
+
+  @Test
+  void closeErrorsArePropagated(@TempDir Path dir) throws IOException {
+    compilePlugin(dir, V2);
+    var context = new ApplicationContext();
+    context.block("constant", () -> (AutoCloseable) () -> {
+      throw new IOException("close");
+    });
+    try (var reloader = new HotReloader(context)) {
+      assertThrows(ApplicationCloseException.class, () -> reloader.reload(List.of("constant"), List.of(dir)));
+      assertEquals("v2", context.block("constant"));
+    }
+  }
+
+  private static void compilePlugin(Path dir, String body) throws IOException {
+    var src = dir.resolve("src");
+    Files.createDirectories(src);
+    var file = Files.writeString(src.resolve("ReloadedPlugin.java"), """
+      public class ReloadedPlugin implements org.tybloco.runtime.plugins.Plugin {
+        public void run(org.tybloco.runtime.application.ApplicationContext context) {
+          %s
+        }
+      }
+      """.formatted(body));
+    var compiler = ToolProvider.getSystemJavaCompiler();
+    var cp = Path.of(Plugin.class.getProtectionDomain().getCodeSource().getLocation().getPath()).toString();
+    assertEquals(0, compiler.run(null, null, null, "-cp", cp, "-d", dir.toString(), file.toString()));
+    var services = Files.createDirectories(dir.resolve("META-INF").resolve("services"));
+    Files.writeString(services.resolve(Plugin.class.getName()), "ReloadedPlugin\n");
+  }
+
+  private static AutoCloseable resource(String name, ConcurrentLinkedQueue<String> events) {
+    return () -> events.add("close " + name);
+  }
+}
@@ -0,0 +1,109 @@
+package org.tybloco.runtime.application;
+
+/*-
+ * #%L
+ * runtime
+ * %%
+ * Copyright (C) 2023 Montoni
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import org.junit.jupiter.api.Test;
+import org.tybloco.runtime.exception.BlockInitException;
+
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StartupPlannerTest {
+
+  @Test
+  void independentBlocksRunConcurrently() {
+    var context = new ApplicationContext();
+    var latch = new CountDownLatch(2);
+    Supplier<Object> awaiting = () -> {
+      latch.countDown();
+      try {
+        assertTrue(latch.await(10L, TimeUnit.SECONDS));
+      } catch (InterruptedException e) {
+        throw new IllegalStateException(e);
+      }
+      return new Object();
+    };
+    var report = new StartupPlanner(context)
+      .add("a", awaiting)
+      .add("b", awaiting)
+      .start();
+    assertEquals(2, report.blocks().size());
+    assertNotNull(context.block("a"));
+    assertNotNull(context.block("b"));
+  }
+
+  @Test
+  void dependencyOrderAndReverseClose() {
+    var context = new ApplicationContext();
+    var events = new ConcurrentLinkedQueue<String>();
+    new StartupPlanner(context)
+      .add("top", List.of("left", "right"), () -> resource("top", events))
+      .add("left", List.of("root"), () -> resource("left", events))
+      .add("right", List.of("root"), () -> resource("right", events))
+      .add("root", () -> resource("root", events))
+      .start();
+    var order = List.copyOf(events);
+    assertEquals("init root", order.get(0));
+    assertEquals("init top", order.get(3));
+    events.clear();
+    context.close();
+    var closed = List.copyOf(events);
+    assertEquals("close top", closed.get(0));
+    assertEquals("close root", closed.get(3));
+  }
+
+  @Test
+  void cycle() {
+    var planner = new StartupPlanner(new ApplicationContext())
+      .add("a", List.of("b"), Object::new)
+      .add("b", List.of("a"), Object::new);
+    assertThrows(IllegalStateException.class, planner::start);
+  }
+
+  @Test
+  void unknownDependency() {
+    var planner = new StartupPlanner(new ApplicationContext()).add("a", List.of("x"), Object::new);
+    assertThrows(IllegalArgumentException.class, planner::start);
+  }
+
+  @Test
+  void failureStopsDependents() {
+    var context = new ApplicationContext();
+    var planner = new StartupPlanner(context)
+      .add("a", () -> { throw new IllegalStateException("boom"); })
+      .add("b", List.of("a"), Object::new);
+    var e = assertThrows(BlockInitException.class, planner::start);
+    assertInstanceOf(IllegalStateException.class, e.getCause());
+    assertThrows(NoSuchElementException.class, () -> context.block("b"));
+  }
+
+  private static AutoCloseable resource(String name, ConcurrentLinkedQueue<String> events) {
+    events.add("init " + name);
+    return () -> events.add("close " + name);
+  }
+}
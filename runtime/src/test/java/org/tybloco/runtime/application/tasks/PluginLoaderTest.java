@@ -0,0 +1,178 @@
+package org.tybloco.runtime.application.tasks;
+
+/*-
+ * #%L
+ * runtime
+ * %%
+ * Copyright (C) 2023 Montoni
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.tybloco.runtime.application.ApplicationContext;
+import org.tybloco.runtime.plugins.Plugin;
+import org.tybloco.runtime.plugins.PluginException;
+import org.tybloco.runtime.util.SettingsSnapshot;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PluginLoaderTest {
+
+  static final ConcurrentLinkedQueue<String> EVENTS = new ConcurrentLinkedQueue<>();
+  static volatile CountDownLatch latch;
+  static final AtomicBoolean STOPPED = new AtomicBoolean();
+
+  @Test
+  void samePriorityRunsConcurrently(@TempDir Path dir) throws Exception {
+    EVENTS.clear();
+    latch = new CountDownLatch(2);
+    var loader = new PluginLoader();
+    withServices(dir, List.of(First.class, Second.class, Third.class), () -> loader.run(new ApplicationContext()));
+    assertEquals("first", EVENTS.peek());
+    assertEquals(3, EVENTS.size());
+    assertEquals(3, loader.timings().size());
+    assertTrue(loader.timings().stream().noneMatch(PluginLoader.PluginTiming::timedOut));
+  }
+
+  @Test
+  void timeout(@TempDir Path dir) throws Exception {
+    System.setProperty("ty.plugin.timeout", "100");
+    SettingsSnapshot.refresh();
+    try {
+      var loader = new PluginLoader();
+      for (int i = 0; i < 2; i++) {
+        STOPPED.set(false);
+        var e = assertThrows(PluginException.class, () -> withServices(dir, List.of(Stuck.class), () -> loader.run(new ApplicationContext())));
+        assertInstanceOf(TimeoutException.class, e.getCause());
+        assertTrue(STOPPED.get());
+        assertEquals(1, loader.timings().size());
+        assertTrue(loader.timings().getFirst().timedOut());
+      }
+    } finally {
+      System.clearProperty("ty.plugin.timeout");
+      SettingsSnapshot.refresh();
+    }
+  }
+
+  @Test
+  void indexedGroupsInitializeLazily(@TempDir Path dir) throws Exception {
+    EVENTS.clear();
+    var index = Files.createDirectories(dir.resolve("META-INF").resolve("tybloco"));
+    Files.writeString(index.resolve("plugins.idx"), "0\t" + Early.class.getName() + "\n1\t" + Late.class.getName() + "\n");
+    var thread = Thread.currentThread();
+    var old = thread.getContextClassLoader();
+    try (var classLoader = new URLClassLoader(new URL[] {dir.toUri().toURL()}, old)) {
+      thread.setContextClassLoader(classLoader);
+      new PluginLoader().run(new ApplicationContext());
+    } finally {
+      thread.setContextClassLoader(old);
+    }
+    assertEquals(List.of("early", "late-init", "late"), List.copyOf(EVENTS));
+  }
+
+  private static void withServices(Path dir, List<Class<? extends Plugin>> plugins, Runnable task) throws Exception {
+    var services = Files.createDirectories(dir.resolve("META-INF").resolve("services"));
+    Files.write(services.resolve(Plugin.class.getName()), plugins.stream().map(Class::getName).toList());
+    var thread = Thread.currentThread();
+    var old = thread.getContextClassLoader();
+    try (var classLoader = new URLClassLoader(new URL[] {dir.toUri().toURL()}, old)) {
+      thread.setContextClassLoader(classLoader);
+      task.run();
+    } finally {
+      thread.setContextClassLoader(old);
+    }
+  }
+
+  private static void await() {
+    latch.countDown();
+    try {
+      assertTrue(latch.await(10L, TimeUnit.SECONDS));
+    } catch (InterruptedException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  public static final class First implements Plugin {
+    @Override
+    public int getPriority() {
+      return 0;
+    }
+
+    @Override
+    public void run(ApplicationContext context) {
+      EVENTS.add("first");
+    }
+  }
+
+  public static final class Second implements Plugin {
+    @Override
+    public void run(ApplicationContext context) {
+      await();
+      EVENTS.add("second");
+    }
+  }
+
+  public static final class Third implements Plugin {
+    @Override
+    public void run(ApplicationContext context) {
+      await();
+      EVENTS.add("third");
+    }
+  }
+
+  public static final class Early implements Plugin {
+    @Override
+    public void run(ApplicationContext context) {
+      EVENTS.add("early");
+    }
+  }
+
+  public static final class Late implements Plugin {
+    static {
+      EVENTS.add("late-init");
+    }
+
+    @Override
+    public void run(ApplicationContext context) {
+      EVENTS.add("late");
+    }
+  }
+
+  public static final class Stuck implements Plugin {
+    @Override
+    public void run(ApplicationContext context) {
+      try {
+        Thread.sleep(10_000L);
+      } catch (InterruptedException e) {
+        throw new IllegalStateException(e);
+      } finally {
+        STOPPED.set(true);
+      }
+    }
+  }
+}
@@ -0,0 +1,89 @@
+package org.tybloco.runtime.basic.mx;
+
+/*-
+ * #%L
+ * runtime
+ * %%
+ * Copyright (C) 2023 Montoni
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import org.junit.jupiter.api.Test;
+import org.tybloco.runtime.basic.executors.VirtualExecutorByKey;
+import org.tybloco.runtime.basic.thread.VirtualThreadFactory;
+import org.tybloco.testing.eventually.Eventually;
+
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PinningMonitorTest implements Eventually {
+
+  private final Object lock = new Object();
+
+  @Test
+  void pinnedConsumer() throws Exception {
+    try (var monitor = new PinningMonitor("org.tybloco.test", "type", "pinning", Duration.ofMillis(1L), Throwable::printStackTrace)) {
+      var factory = new VirtualThreadFactory("pinning-consumer-%d", (t, e) -> e.printStackTrace());
+      var thread = factory.newThread(this::blockInsideMonitor);
+      thread.start();
+      thread.join();
+      var site = eventually(() -> {
+        var s = monitor.getSiteCounts().keySet().stream().filter(k -> k.contains("blockInsideMonitor")).findFirst().orElseThrow();
+        assertTrue(monitor.getSiteMaxDurationNanos().get(s) >= 10_000_000L);
+        return s;
+      });
+      assertTrue(site.startsWith("pinning-consumer- "), site);
+      assertTrue(monitor.getMaxDurationNanos() >= 10_000_000L);
+      var server = ManagementFactory.getPlatformMBeanServer();
+      var count = (Long) server.getAttribute(new ObjectName("org.tybloco.test", "type", "pinning"), "Count");
+      assertTrue(count > 0L);
+      monitor.reset();
+      assertEquals(0L, monitor.getCount());
+    }
+  }
+
+  @Test
+  void pinnedExecutorByKey() throws Exception {
+    try (var monitor = new PinningMonitor("org.tybloco.test", "type", "keyedPinning", Duration.ofMillis(1L), Throwable::printStackTrace);
+         var executors = new VirtualExecutorByKey<String>("pinned", 2)) {
+      executors.executorByKey("key-7").submit(this::blockInsideMonitor).get();
+      var site = eventually(() -> monitor.getSiteCounts().keySet().stream().filter(k -> k.contains("blockInsideMonitor")).findFirst().orElseThrow());
+      assertTrue(site.startsWith("pinned_ "), site);
+    }
+  }
+
+  @Test
+  void threadGroups() {
+    assertEquals("pinning-consumer-", PinningMonitor.threadGroup("pinning-consumer-12", true));
+    assertEquals("exec_", PinningMonitor.threadGroup("exec_42", true));
+    assertEquals("my_exec_", PinningMonitor.threadGroup("my_exec_abc", true));
+    assertEquals("pool_worker-", PinningMonitor.threadGroup("pool_worker-3", false));
+    assertEquals("main", PinningMonitor.threadGroup("main", true));
+  }
+
+  private void blockInsideMonitor() {
+    synchronized (lock) {
+      try {
+        Thread.sleep(50L);
+      } catch (InterruptedException e) {
+        throw new IllegalStateException(e);
+      }
+    }
+  }
+}
@@ -0,0 +1,171 @@
+package org.tybloco.runtime.basic.sink;
+
+/*-
+ * #%L
+ * runtime
+ * %%
+ * Copyright (C) 2023 Montoni
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import org.junit.jupiter.api.Test;
+import org.tybloco.runtime.application.ApplicationContext;
+import org.tybloco.runtime.basic.executors.VirtualExecutorByKey;
+import org.tybloco.runtime.basic.source.BiSource;
+import org.tybloco.runtime.basic.source.Source;
+import org.tybloco.runtime.util.SettingsSnapshot;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.util.concurrent.locks.LockSupport.parkNanos;
+import static org.junit.jupiter.api.Assertions.*;
+
+class SinkDrainTest {
+
+  @Test
+  void sequentialSinkStopsSourceWithoutDrops() throws Exception {
+    var context = new ApplicationContext();
+    var emitted = new AtomicInteger();
+    var processed = new AtomicInteger();
+    var started = new CountDownLatch(1);
+    var source = (Source<Integer>) (ctx, c) -> {
+      while (true) {
+        c.accept(emitted.incrementAndGet());
+      }
+    };
+    var sink = context.block("sink", () -> new SequentialSink<Integer>(context, Thread::new, source, e -> {
+      started.countDown();
+      parkNanos(5_000_000L);
+      processed.incrementAndGet();
+    }, Throwable::printStackTrace));
+    sink.start();
+    assertTrue(started.await(10L, TimeUnit.SECONDS));
+    assertTrue(context.drain().isEmpty());
+    assertFalse(sink.alive());
+    context.close();
+    assertEquals(0L, context.dropped());
+    assertEquals(emitted.get(), processed.get());
+  }
+
+  @Test
+  void sequentialSinkCountsRejected() throws Exception {
+    var context = new ApplicationContext();
+    var processed = new AtomicInteger();
+    var done = new CountDownLatch(1);
+    var source = (Source<Integer>) (ctx, c) -> {
+      for (int i = 1; i <= 5; i++) {
+        try {
+          c.accept(i);
+        } catch (IllegalArgumentException ignore) {
+        }
+      }
+      done.countDown();
+    };
+    var sink = context.block("sink", () -> new SequentialSink<Integer>(context, Thread::new, source, e -> {
+      if (e % 2 == 0) throw new IllegalArgumentException("rejected " + e);
+      processed.incrementAndGet();
+    }, Throwable::printStackTrace));
+    sink.start();
+    assertTrue(done.await(10L, TimeUnit.SECONDS));
+    assertTrue(context.drain().isEmpty());
+    context.close();
+    assertEquals(3, processed.get());
+    assertEquals(2L, sink.dropped());
+    assertEquals(2L, context.dropped());
+  }
+
+  @Test
+  void biSinkWaitsForInFlightTasks() throws Exception {
+    var context = new ApplicationContext();
+    var emitted = new AtomicInteger();
+    var processed = new AtomicInteger();
+    var started = new CountDownLatch(1);
+    var source = (BiSource<Integer, Integer>) (ctx, c) -> {
+      while (true) {
+        var v = emitted.incrementAndGet();
+        c.accept(v % 2, v);
+      }
+    };
+    try (var executors = new VirtualExecutorByKey<Integer>("drain", 2)) {
+      var sink = context.block("sink", () -> new BiSink<Integer, Integer>(context, Thread::new, source, executors, (k, v) -> {
+        started.countDown();
+        parkNanos(5_000_000L);
+        processed.incrementAndGet();
+      }, Throwable::printStackTrace));
+      sink.start();
+      assertTrue(started.await(10L, TimeUnit.SECONDS));
+      assertTrue(context.drain().isEmpty());
+      context.close();
+      assertEquals(0L, context.dropped());
+      assertEquals(emitted.get(), processed.get());
+    }
+  }
+
+  @Test
+  void idleSourceIsInterrupted() throws Exception {
+    var context = new ApplicationContext();
+    var processed = new AtomicInteger();
+    var errors = new AtomicInteger();
+    var started = new CountDownLatch(1);
+    var source = (Source<Integer>) (ctx, c) -> {
+      c.accept(1);
+      try {
+        new CountDownLatch(1).await();
+      } catch (InterruptedException e) {
+        throw new IllegalStateException(e);
+      }
+    };
+    var sink = context.block("sink", () -> new SequentialSink<Integer>(context, Thread::new, source, e -> {
+      processed.incrementAndGet();
+      started.countDown();
+    }, e -> errors.incrementAndGet()));
+    sink.start();
+    assertTrue(started.await(10L, TimeUnit.SECONDS));
+    var start = System.nanoTime();
+    assertTrue(context.drain().isEmpty());
+    assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5L));
+    context.close();
+    assertEquals(1, processed.get());
+    assertEquals(0, errors.get());
+    assertEquals(0L, context.dropped());
+  }
+
+  @Test
+  void deadline() throws Exception {
+    System.setProperty("ty.drain.timeout", "50");
+    SettingsSnapshot.refresh();
+    try {
+      var context = new ApplicationContext();
+      var started = new CountDownLatch(1);
+      var source = (Source<Integer>) (ctx, c) -> c.accept(1);
+      var sink = context.block("sink", () -> new SequentialSink<Integer>(context, Thread::new, source, e -> {
+        started.countDown();
+        parkNanos(TimeUnit.SECONDS.toNanos(30L));
+      }, Throwable::printStackTrace));
+      sink.start();
+      assertTrue(started.await(10L, TimeUnit.SECONDS));
+      assertEquals(List.of("sink"), context.drain());
+      context.close();
+      assertFalse(sink.alive());
+    } finally {
+      System.clearProperty("ty.drain.timeout");
+      SettingsSnapshot.refresh();
+    }
+  }
+}
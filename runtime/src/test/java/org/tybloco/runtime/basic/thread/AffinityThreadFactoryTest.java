@@ -0,0 +1,67 @@
+package org.tybloco.runtime.basic.thread;
+
+/*-
+ * #%L
+ * runtime
+ * %%
+ * Copyright (C) 2023 Montoni
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AffinityThreadFactoryTest {
+
+  @Test
+  void parse() {
+    var set = Affinity.parse("0-2, 5,7-7");
+    assertEquals(BitSet.valueOf(new long[] {0b10100111L}), set);
+    assertThrows(IllegalArgumentException.class, () -> Affinity.parse("a-b"));
+  }
+
+  @Test
+  void pinAndScratch() throws Exception {
+    var cpu = AffinityThreadFactory.isSupported() ? Affinity.current().nextSetBit(0) : 0;
+    var factory = new AffinityThreadFactory(null, "affinity-%d", true, null, Integer.toString(cpu), 4096L);
+    var result = new CompletableFuture<BitSet>();
+    var size = new CompletableFuture<Long>();
+    factory.newThread(() -> {
+      size.complete(AffinityThreadFactory.scratch().byteSize());
+      result.complete(AffinityThreadFactory.isPinned() ? Affinity.current() : null);
+    }).start();
+    assertEquals(4096L, size.get(10L, TimeUnit.SECONDS));
+    var pinned = result.get(10L, TimeUnit.SECONDS);
+    if (AffinityThreadFactory.isSupported()) {
+      var expected = new BitSet();
+      expected.set(cpu);
+      assertEquals(expected, pinned);
+    }
+  }
+
+  @Test
+  void fallbackWithoutCpus() throws Exception {
+    var factory = new AffinityThreadFactory(null, "affinity-%d", true, null, "", 0L);
+    var result = new CompletableFuture<Boolean>();
+    factory.newThread(() -> result.complete(AffinityThreadFactory.isPinned() || AffinityThreadFactory.scratch().byteSize() > 0L)).start();
+    assertFalse(result.get(10L, TimeUnit.SECONDS));
+  }
+}
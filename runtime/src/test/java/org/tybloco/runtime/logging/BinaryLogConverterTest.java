@@ -0,0 +1,98 @@
+package org.tybloco.runtime.logging;
+
+/*-
+ * #%L
+ * runtime
+ * %%
+ * Copyright (C) 2023 Montoni
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import org.junit.jupiter.api.Test;
+import org.slf4j.event.KeyValuePair;
+import org.slf4j.event.Level;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class BinaryLogConverterTest {
+
+  private final HostContext context = new HostContext(List.of(), List.of(), List.of("user"), 42L);
+
+  @Test
+  void roundTrip() throws IOException {
+    var records = records();
+    var json = encode(new JsonEncoder(context, new Timestamps(true), new StackTraces(1024, 32, 60_000L)), records);
+    var binary = encode(new BinaryEncoder(context, new Timestamps(true), new StackTraces(1024, 32, 60_000L), 3), records);
+    var out = new ByteArrayOutputStream();
+    try (var converter = new BinaryLogConverter(out)) {
+      converter.convert(new ByteArrayInputStream(binary));
+    }
+    assertEquals(new String(json, UTF_8), out.toString(UTF_8));
+  }
+
+  private List<LogRecord> records() {
+    var markers = new FastMarkerFactory();
+    var parent = markers.getMarker("parent");
+    parent.add(markers.getMarker("child"));
+    var keyValues = List.of(
+      new KeyValuePair("null", null),
+      new KeyValuePair("bool", true),
+      new KeyValuePair("int", -12),
+      new KeyValuePair("long", Long.MAX_VALUE),
+      new KeyValuePair("double", 1.5),
+      new KeyValuePair("nan", Double.NaN),
+      new KeyValuePair("big", new BigInteger("123456789012345678901234567890")),
+      new KeyValuePair("decimal", new BigDecimal("1.25")),
+      new KeyValuePair("string", "a\"b\nc")
+    );
+    var mdc = MDCMap.of(Map.of("x", "1", "y", "ü"));
+    var errors = new ArrayList<Throwable>();
+    for (int i = 0; i < 2; i++) {
+      errors.add(new IllegalStateException("e", new IllegalArgumentException("cause")));
+    }
+    var time = 1_700_000_000_000_000L;
+    return List.of(
+      new LogRecord(Level.INFO, 1L, "main", time, "a.B", List.of(), "simple", null, List.of(), MDCMap.empty(), MDCMap.empty()),
+      new LogRecord(Level.WARN, 2L, "worker", time + 1_234L, "a.C", List.of(parent), "kv", null, keyValues, mdc, MDCMap.empty()),
+      new LogRecord(Level.ERROR, 1L, "main", time - 5L, "a.B", List.of(), "sql", new SQLException("bad", "42000", 7), List.of(), mdc, MDCMap.empty()),
+      new LogRecord(Level.ERROR, 3L, "other", time + 9L, "a.B", List.of(), "first", errors.get(0), List.of(), MDCMap.empty(), MDCMap.empty()),
+      new LogRecord(Level.ERROR, 3L, "other", time + 10L, "a.B", List.of(), "second", errors.get(1), List.of(), MDCMap.empty(), MDCMap.empty())
+    );
+  }
+
+  private static byte[] encode(LogEncoder encoder, List<LogRecord> records) throws IOException {
+    var out = new ByteArrayOutputStream();
+    try (var buffer = new FileBuffer(1 << 20)) {
+      for (var record : records) {
+        encoder.encode(record, buffer);
+        buffer.rewind(out);
+        buffer.reset();
+      }
+    }
+    return out.toByteArray();
+  }
+}
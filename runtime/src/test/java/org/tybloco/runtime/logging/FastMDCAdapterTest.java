@@ -0,0 +1,94 @@
+package org.tybloco.runtime.logging;
+
+/*-
+ * #%L
+ * runtime
+ * %%
+ * Copyright (C) 2023 Montoni
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FastMDCAdapterTest {
+
+  @Test
+  void captureIsImmutable() {
+    var adapter = new FastMDCAdapter();
+    adapter.put("b", "2");
+    adapter.put("a", "1");
+    var captured = adapter.map.get();
+    adapter.put("a", "3");
+    adapter.remove("b");
+    assertEquals(Map.of("a", "1", "b", "2"), captured.toTreeMap());
+    assertEquals(List.of("a", "b"), List.of(captured.key(0), captured.key(1)));
+    assertEquals(Map.of("a", "3"), adapter.getCopyOfContextMap());
+    adapter.clear();
+    assertTrue(adapter.map.get().isEmpty());
+  }
+
+  @Test
+  void sameValueKeepsMap() {
+    var adapter = new FastMDCAdapter();
+    adapter.put("a", "1");
+    var captured = adapter.map.get();
+    adapter.put("a", "1");
+    assertSame(captured, adapter.map.get());
+  }
+
+  @Test
+  void inheritance() throws Exception {
+    var adapter = new FastMDCAdapter();
+    adapter.put("a", "1");
+    var parent = adapter.map.get();
+    var child = new AtomicReference<MDCMap<String>>();
+    var thread = Thread.ofVirtual().start(() -> {
+      child.set(adapter.map.get());
+      adapter.put("b", "2");
+    });
+    thread.join();
+    assertSame(parent, child.get());
+    assertNull(adapter.get("b"));
+  }
+
+  @Test
+  void scoped() throws Exception {
+    var adapter = new FastMDCAdapter();
+    adapter.put("a", "1");
+    var value = adapter.callWith("a", "2", () -> adapter.get("a"));
+    assertEquals("2", value);
+    assertEquals("1", adapter.get("a"));
+  }
+
+  @Test
+  void deque() {
+    var adapter = new FastMDCAdapter();
+    adapter.pushByKey("q", "1");
+    adapter.pushByKey("q", "2");
+    assertEquals(new LinkedList<>(List.of("2", "1")), adapter.getCopyOfDequeByKey("q"));
+    assertEquals("2", adapter.popByKey("q"));
+    assertEquals("1", adapter.popByKey("q"));
+    assertNull(adapter.popByKey("q"));
+    assertNull(adapter.getCopyOfDequeByKey("q"));
+  }
+}
@@ -0,0 +1,93 @@
+package org.tybloco.runtime.logging;
+
+/*-
+ * #%L
+ * runtime
+ * %%
+ * Copyright (C) 2023 Montoni
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.tybloco.runtime.util.SettingsSnapshot;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HostContextTest {
+
+  @Test
+  void unresolved() {
+    var context = new HostContext();
+    assertTrue(context.resolution.isDone());
+    assertTrue(context.addresses().isEmpty());
+    assertFalse(context.users.isEmpty());
+  }
+
+  @Test
+  void cached(@TempDir Path dir) throws Exception {
+    var cache = dir.resolve("host.properties");
+    Files.writeString(cache, "addresses=10.0.0.1,10.0.0.2\nhosts=cached\n");
+    System.setProperty("ty.resolve.hosts", "true");
+    System.setProperty("ty.host.cache", cache.toString());
+    SettingsSnapshot.refresh();
+    try {
+      var pending = new ArrayList<Runnable>();
+      var context = new HostContext(pending::add);
+      assertEquals(List.of("10.0.0.1", "10.0.0.2"), context.addresses());
+      assertEquals(List.of("cached"), context.hosts());
+      assertFalse(context.resolution.isDone());
+      assertEquals(1, pending.size());
+      pending.forEach(Runnable::run);
+      context.resolution.get(30L, TimeUnit.SECONDS);
+      assertFalse(context.addresses().isEmpty());
+      var next = new HostContext();
+      assertEquals(context.addresses(), next.addresses());
+      assertEquals(context.hosts(), next.hosts());
+      next.resolution.get(30L, TimeUnit.SECONDS);
+    } finally {
+      System.clearProperty("ty.resolve.hosts");
+      System.clearProperty("ty.host.cache");
+      SettingsSnapshot.refresh();
+    }
+  }
+
+  @Test
+  void expiredCache(@TempDir Path dir) throws Exception {
+    var cache = dir.resolve("host.properties");
+    Files.writeString(cache, "addresses=10.0.0.1\nhosts=cached\n");
+    System.setProperty("ty.resolve.hosts", "true");
+    System.setProperty("ty.host.cache", cache.toString());
+    System.setProperty("ty.host.cache.ttl", "-1");
+    SettingsSnapshot.refresh();
+    try {
+      var context = new HostContext();
+      assertNotEquals(List.of("cached"), context.hosts());
+      context.resolution.get(30L, TimeUnit.SECONDS);
+    } finally {
+      System.clearProperty("ty.resolve.hosts");
+      System.clearProperty("ty.host.cache");
+      System.clearProperty("ty.host.cache.ttl");
+      SettingsSnapshot.refresh();
+    }
+  }
+}
@@ -0,0 +1,98 @@
+package org.tybloco.runtime.logging;
+
+/*-
+ * #%L
+ * runtime
+ * %%
+ * Copyright (C) 2023 Montoni
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import org.junit.jupiter.api.Test;
+import org.slf4j.event.KeyValuePair;
+import org.slf4j.event.Level;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.tybloco.testing.json.JsonStream.objectList;
+
+class JsonFragmentsTest {
+
+  private final HostContext context = new HostContext(List.of(), List.of(), List.of("u\"ser"), 42L);
+
+  @Test
+  void cachedOutputIsIdentical() throws IOException {
+    var fragments = new JsonFragments(context, 2);
+    var record = record(1L, "thread \"1\"", "a.B");
+    var first = write(fragments, record);
+    var second = write(fragments, record);
+    assertEquals(first, second);
+    for (int i = 0; i < 5; i++) {
+      write(fragments, record(i, "t" + i, "logger" + i));
+    }
+    assertEquals(first, write(fragments, record));
+    assertEquals(first, write(new JsonFragments(context, 0), record));
+  }
+
+  @Test
+  void renamedThread() throws IOException {
+    var fragments = new JsonFragments(context, 16);
+    write(fragments, record(7L, "before", "a.B"));
+    var json = objectList(write(fragments, record(7L, "after", "a.B"))).getFirst();
+    assertEquals("after", json.get("process.thread.name").getAsString());
+    assertEquals(7L, json.get("process.thread.id").getAsLong());
+    assertEquals("u\"ser", json.get("user.name").getAsString());
+    assertEquals(42L, json.get("process.pid").getAsLong());
+  }
+
+  @Test
+  void reservedKeyValues() throws IOException {
+    var keyValues = List.of(
+      new KeyValuePair("message", "m"),
+      new KeyValuePair("@timestamp", 1),
+      new KeyValuePair("log.level", "x"),
+      new KeyValuePair("error", true),
+      new KeyValuePair("errors", 2)
+    );
+    var record = new LogRecord(Level.INFO, 1L, "t", 0L, "a.B", List.of(), "msg", null, keyValues, MDCMap.empty(), MDCMap.empty());
+    var json = objectList(write(new JsonFragments(context, 0), record)).getFirst();
+    assertEquals("msg", json.get("message").getAsString());
+    assertEquals("INFO", json.get("log.level").getAsString());
+    assertEquals("m", json.get("kv.message").getAsString());
+    assertEquals(1, json.get("kv.@timestamp").getAsInt());
+    assertEquals("x", json.get("kv.log.level").getAsString());
+    assertTrue(json.get("kv.error").getAsBoolean());
+    assertEquals(2, json.get("errors").getAsInt());
+  }
+
+  private static LogRecord record(long threadId, String threadName, String logger) {
+    return new LogRecord(Level.INFO, threadId, threadName, 0L, logger, List.of(), "msg", null, List.of(), MDCMap.empty(), MDCMap.empty());
+  }
+
+  private static String write(JsonFragments fragments, LogRecord record) throws IOException {
+    try (var buffer = new FileBuffer(1 << 16)) {
+      record.writeTo(buffer, fragments, new Timestamps(false), new StackTraces(1024, 32, 0L));
+      var os = new ByteArrayOutputStream();
+      buffer.rewind(os);
+      return os.toString(UTF_8);
+    }
+  }
+}
@@ -0,0 +1,131 @@
+package org.tybloco.runtime.logging;
+
+/*-
+ * #%L
+ * runtime
+ * %%
+ * Copyright (C) 2023 Montoni
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.tybloco.runtime.util.SettingsSnapshot;
+import org.tybloco.testing.eventually.Eventually;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.HashMap;
+import java.util.Properties;
+
+import static java.lang.System.Logger.Level.*;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static org.junit.jupiter.api.Assertions.*;
+
+class LevelTableTest implements Eventually {
+
+  @Test
+  void loggerPrefixes() throws Exception {
+    var table = table("logger.org.tybloco", "INFO", "logger.org.tybloco.runtime.basic", "ERROR", "logger.", "WARNING");
+    assertEquals(WARNING.getSeverity(), table.level("com.example.A"));
+    assertEquals(INFO.getSeverity(), table.level("org.tybloco"));
+    assertEquals(INFO.getSeverity(), table.level("org.tybloco.runtime.A"));
+    assertEquals(ERROR.getSeverity(), table.level("org.tybloco.runtime.basic.A"));
+    assertEquals(INFO.getSeverity(), table.level("org.tybloco.runtime.basics"));
+  }
+
+  @Test
+  void patterns() throws Exception {
+    var table = table("pattern.1", "INFO,abc.*", "pattern.2", "ERROR,abcd.*");
+    assertEquals(LevelTable.ALL, table.level("xyz"));
+    assertEquals(INFO.getSeverity(), table.level("abc"));
+    assertEquals(ERROR.getSeverity(), table.level("abcd"));
+  }
+
+  @Test
+  void markers() throws Exception {
+    var table = table("marker.b", "ERROR");
+    var factory = new FastMarkerFactory();
+    var a = factory.getMarker("a");
+    assertTrue(table.markerEnabled(INFO.getSeverity(), a));
+    a.add(factory.getMarker("b"));
+    assertFalse(table.markerEnabled(INFO.getSeverity(), a));
+    assertTrue(table.markerEnabled(ERROR.getSeverity(), a));
+    a.remove(factory.getMarker("b"));
+    assertTrue(table.markerEnabled(INFO.getSeverity(), a));
+  }
+
+  @Test
+  void reload(@TempDir Path dir) throws IOException {
+    var file = dir.resolve("logging.properties");
+    Files.writeString(file, "logger.abc=ERROR\n");
+    System.setProperty("ty.log.config", file.toString());
+    System.setProperty("ty.log.config.check.period", "10");
+    SettingsSnapshot.refresh();
+    var os = new ByteArrayOutputStream();
+    try (var provider = new LoggingServiceProvider(os)) {
+      var logger = provider.getLoggerFactory().getLogger("abc");
+      assertFalse(logger.isInfoEnabled());
+      var newFile = Files.writeString(dir.resolve("logging.properties.new"), "logger.abc=INFO\n");
+      Files.setLastModifiedTime(newFile, FileTime.fromMillis(System.currentTimeMillis() + 10_000L));
+      Files.move(newFile, file, ATOMIC_MOVE, REPLACE_EXISTING);
+      eventually(() -> {
+        assertTrue(logger.isInfoEnabled());
+        return null;
+      });
+      assertFalse(logger.isDebugEnabled());
+    } finally {
+      System.clearProperty("ty.log.config");
+      System.clearProperty("ty.log.config.check.period");
+      SettingsSnapshot.refresh();
+    }
+  }
+
+  @Test
+  void samplersSurviveReload() throws Exception {
+    var first = table("sampling.abc", "10,abc", "sampling.marker.m", "5");
+    var sampler = first.sampler("abc", null);
+    for (int i = 0; i < 50; i++) {
+      sampler.allow("a {}");
+    }
+    var second = builder("sampling.abc", "10,abc", "sampling.marker.m", "5").build(first);
+    assertSame(sampler, second.sampler("abc", sampler));
+    assertSame(first.markerSamplers().iterator().next(), second.markerSamplers().iterator().next());
+    var report = new HashMap<String, Long>();
+    second.sampler("abc", sampler).report((name, callSite, suppressed) -> report.put(callSite, suppressed));
+    assertEquals(45L, report.get("a {}"));
+    var third = builder("sampling.abc", "20,abc", "sampling.marker.m", "6").build(second);
+    assertNotSame(sampler, third.sampler("abc", sampler));
+    assertNotSame(second.markerSamplers().iterator().next(), third.markerSamplers().iterator().next());
+  }
+
+  private static LevelTable table(String... pairs) throws Exception {
+    return builder(pairs).build();
+  }
+
+  private static LevelTable.Builder builder(String... pairs) throws Exception {
+    var properties = new Properties();
+    for (int i = 0; i < pairs.length; i += 2) {
+      properties.setProperty(pairs[i], pairs[i + 1]);
+    }
+    return new LevelTable.Builder().add(URI.create("file:/test.properties").toURL(), properties);
+  }
+}
@@ -0,0 +1,155 @@
+package org.tybloco.runtime.logging;
+
+/*-
+ * #%L
+ * runtime
+ * %%
+ * Copyright (C) 2023 Montoni
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import org.junit.jupiter.api.Test;
+import org.slf4j.event.Level;
+import org.tybloco.testing.eventually.Eventually;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.tybloco.testing.json.JsonStream.objectList;
+
+class LogOutputsTest implements Eventually {
+
+  private final HostContext context = new HostContext(List.of(), List.of(), List.of("user"), 1L);
+
+  @Test
+  void independentOutputs() {
+    var all = new ByteArrayOutputStream();
+    var sampled = new ByteArrayOutputStream();
+    var warnings = new ByteArrayOutputStream();
+    var outputs = List.of(
+      new LogOutput("all", "json", Level.TRACE, 1, 0, () -> all, false),
+      new LogOutput("sampled", "json", Level.TRACE, 2, 1, () -> sampled, false),
+      new LogOutput("warnings", "text", Level.WARN, 1, 0, () -> warnings, false)
+    );
+    try (var logOutputs = new LogOutputs(outputs, context, new Timestamps(false), new StackTraces(1024, 32, 0L), 1 << 16)) {
+      logOutputs.write(record(Level.INFO, "m1", null));
+      logOutputs.write(record(Level.WARN, "m2", null));
+      logOutputs.write(record(Level.ERROR, "m3", new IllegalStateException("x")));
+      logOutputs.write(record(Level.DEBUG, "m4", null));
+      logOutputs.flush();
+    }
+    assertEquals(List.of("m1", "m2", "m3", "m4"), messages(all));
+    assertEquals(List.of("m1", "m3"), messages(sampled));
+    var text = warnings.toString(UTF_8);
+    var lines = text.split("\n");
+    assertTrue(lines[0].endsWith("Z WARN  [main] a.B - m2"), lines[0]);
+    assertTrue(lines[1].endsWith("Z ERROR [main] a.B - m3"), lines[1]);
+    assertEquals("java.lang.IllegalStateException: x", lines[2]);
+    assertFalse(text.contains("m1"));
+  }
+
+  @Test
+  void stackTraceDedupPerFormat() throws IOException {
+    var json = new ByteArrayOutputStream();
+    var binary = new ByteArrayOutputStream();
+    var outputs = List.of(
+      new LogOutput("json", "json", Level.TRACE, 1, 0, () -> json, false),
+      new LogOutput("binary", "binary", Level.TRACE, 1, 0, () -> binary, false)
+    );
+    try (var logOutputs = new LogOutputs(outputs, context, new Timestamps(false), new StackTraces(1024, 32, 60_000L), 1 << 16)) {
+      logOutputs.write(record(Level.ERROR, "m", new IllegalStateException("x")));
+      logOutputs.flush();
+    }
+    var converted = new ByteArrayOutputStream();
+    try (var converter = new BinaryLogConverter(converted)) {
+      converter.convert(new ByteArrayInputStream(binary.toByteArray()));
+    }
+    assertNotNull(objectList(json.toString(UTF_8)).getFirst().get("error.stack_trace"));
+    assertNotNull(objectList(converted.toString(UTF_8)).getFirst().get("error.stack_trace"));
+  }
+
+  @Test
+  void binaryReconnect() throws IOException {
+    var streams = new ArrayList<ByteArrayOutputStream>();
+    var attempts = new AtomicInteger();
+    var broken = new AtomicBoolean();
+    var output = new LogOutput("tcp", "binary", Level.TRACE, 1, 0, () -> {
+      if (attempts.getAndIncrement() == 0) throw new IOException("unavailable");
+      var stream = new ByteArrayOutputStream() {
+        @Override
+        public void write(byte[] b, int off, int len) {
+          if (broken.get()) throw new UncheckedIOException(new IOException("reset"));
+          super.write(b, off, len);
+        }
+      };
+      streams.add(stream);
+      return stream;
+    }, true);
+    try (var logOutputs = new LogOutputs(List.of(output), context, new Timestamps(false), new StackTraces(1024, 32, 0L), 1 << 16)) {
+      logOutputs.write(record(Level.INFO, "dropped", null));
+      eventually(Duration.ofSeconds(10L), Duration.ofMillis(10L), () -> {
+        logOutputs.write(record(Level.INFO, "first", null));
+        return streams.getFirst();
+      });
+      logOutputs.write(record(Level.INFO, "second", null));
+      broken.set(true);
+      logOutputs.write(record(Level.INFO, "lost", null));
+      broken.set(false);
+      eventually(Duration.ofSeconds(10L), Duration.ofMillis(10L), () -> {
+        logOutputs.write(record(Level.INFO, "third", null));
+        return streams.get(1);
+      });
+      logOutputs.write(record(Level.INFO, "fourth", null));
+    }
+    assertEquals(List.of("first", "second"), messages(convert(streams.get(0))));
+    assertEquals(List.of("third", "fourth"), messages(convert(streams.get(1))));
+  }
+
+  @Test
+  void failingTarget() {
+    var output = new LogOutput("broken", "json", Level.TRACE, 1, 0, () -> {
+      throw new IllegalStateException("unavailable");
+    }, true);
+    try (var logOutputs = new LogOutputs(List.of(output), context, new Timestamps(false), new StackTraces(1024, 32, 0L), 1 << 16)) {
+      assertDoesNotThrow(() -> logOutputs.write(record(Level.INFO, "m", null)));
+    }
+  }
+
+  private static LogRecord record(Level level, String msg, Throwable error) {
+    return new LogRecord(level, 1L, "main", 0L, "a.B", List.of(), msg, error, List.of(), MDCMap.empty(), MDCMap.empty());
+  }
+
+  private static ByteArrayOutputStream convert(ByteArrayOutputStream binary) throws IOException {
+    var converted = new ByteArrayOutputStream();
+    try (var converter = new BinaryLogConverter(converted)) {
+      converter.convert(new ByteArrayInputStream(binary.toByteArray()));
+    }
+    return converted;
+  }
+
+  private static List<String> messages(ByteArrayOutputStream os) {
+    return objectList(os.toString(UTF_8)).stream().map(o -> o.get("message").getAsString()).toList();
+  }
+}
@@ -22,11 +22,19 @@ package org.tybloco.runtime.logging;
  */
 
 import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+import org.tybloco.runtime.util.SettingsSnapshot;
 import org.tybloco.testing.eventually.Eventually;
 
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.function.Consumer;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.tybloco.testing.json.JsonStream.objectList;
 
 @TestInstance(TestInstance.Lifecycle.PER_CLASS)
@@ -78,4 +86,95 @@ class LoggingServiceProviderTest implements Eventually {
       assertEquals(4_000, elements.size());
     }
   }
+
+  @Test
+  void logResizedQueue(@TempDir Path dir) throws IOException {
+    var file = Files.writeString(dir.resolve("settings.properties"), "ty.log.queue.size=4\n");
+    var os = new ByteArrayOutputStream();
+    try (var provider = new LoggingServiceProvider(os)) {
+      var logger = provider.getLoggerFactory().getLogger("abc");
+      System.setProperty("ty.settings.file", file.toString());
+      for (int i = 0; i < 1_000; i++) {
+        if (i == 300) SettingsSnapshot.refresh();
+        if (i == 600) {
+          Files.writeString(file, "ty.log.queue.size=1024\n");
+          SettingsSnapshot.refresh();
+        }
+        logger.info("Hello {}", i);
+      }
+      var elements = eventually(() -> {
+        var l = objectList(os);
+        assertEquals(1_000, l.size());
+        return l;
+      });
+      assertEquals("Hello 999", elements.getLast().get("message").getAsString());
+    } finally {
+      System.clearProperty("ty.settings.file");
+      SettingsSnapshot.refresh();
+    }
+  }
+
+  @Test
+  void logFromSettingsListener(@TempDir Path dir) throws IOException {
+    var file = Files.writeString(dir.resolve("settings.properties"), "ty.log.queue.size=4\n");
+    var os = new ByteArrayOutputStream();
+    System.setProperty("ty.log.config.check.period", "1");
+    SettingsSnapshot.refresh();
+    try (var provider = new LoggingServiceProvider(os)) {
+      var logger = provider.getLoggerFactory().getLogger("abc");
+      Consumer<SettingsSnapshot> listener = s -> {
+        for (int i = 0; i < 100; i++) {
+          logger.info("Listener {}", i);
+        }
+      };
+      SettingsSnapshot.addListener(listener);
+      try {
+        System.setProperty("ty.settings.file", file.toString());
+        logger.info("Trigger");
+        var elements = eventually(() -> {
+          var l = objectList(os);
+          assertEquals(101, l.size());
+          return l;
+        });
+        assertEquals("Listener 99", elements.getLast().get("message").getAsString());
+      } finally {
+        SettingsSnapshot.removeListener(listener);
+      }
+    } finally {
+      System.clearProperty("ty.log.config.check.period");
+      System.clearProperty("ty.settings.file");
+      SettingsSnapshot.refresh();
+    }
+  }
+
+  @Test
+  void logKeyValues() {
+    var os = new ByteArrayOutputStream();
+    try (var provider = new LoggingServiceProvider(os)) {
+      var logger = provider.getLoggerFactory().getLogger("abc");
+      var markers = provider.getMarkerFactory();
+      logger.atInfo()
+        .addMarker(markers.getMarker("a"))
+        .addMarker(markers.getMarker("b"))
+        .addKeyValue("n", 42)
+        .addKeyValue("d", 1.5)
+        .addKeyValue("f", true)
+        .addKeyValue("s", "x\"y")
+        .addKeyValue("o", List.of(1))
+        .log("Hello {}", "World");
+      var element = eventually(() -> {
+        var l = objectList(os);
+        assertEquals(1, l.size());
+        return l.getFirst();
+      });
+      assertEquals("Hello World", element.get("message").getAsString());
+      assertEquals(42, element.get("n").getAsJsonPrimitive().getAsInt());
+      assertTrue(element.get("n").getAsJsonPrimitive().isNumber());
+      assertEquals(1.5, element.get("d").getAsJsonPrimitive().getAsDouble());
+      assertTrue(element.get("f").getAsJsonPrimitive().getAsBoolean());
+      assertEquals("x\"y", element.get("s").getAsString());
+      assertEquals("[1]", element.get("o").getAsString());
+      assertEquals(2, element.get("tags").getAsJsonArray().size());
+    }
+  }
 }
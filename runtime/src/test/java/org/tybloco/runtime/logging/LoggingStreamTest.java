@@ -0,0 +1,97 @@
+package org.tybloco.runtime.logging;
+
+/*-
+ * #%L
+ * runtime
+ * %%
+ * Copyright (C) 2023 Montoni
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.concurrent.ArrayBlockingQueue;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LoggingStreamTest {
+
+  private final FastMDCAdapter mdcAdapter = new FastMDCAdapter();
+  private final Timestamps timestamps = new Timestamps(false);
+
+  @Test
+  void linesAndStackTraces() throws Exception {
+    var queue = new ArrayBlockingQueue<LogRecord>(16);
+    var stream = new LoggingStream(queue, mdcAdapter, timestamps, 60_000_000_000L, 1 << 16);
+    var thread = Thread.ofPlatform().name("writer").start(() -> {
+      stream.println("first");
+      stream.print("second ");
+      stream.println("line");
+      new IllegalStateException("boom", new RuntimeException("cause")).printStackTrace(stream);
+      stream.print("partial");
+    });
+    thread.join();
+    stream.expire(true);
+    var records = new ArrayList<LogRecord>();
+    queue.drainTo(records);
+    assertEquals(4, records.size(), records::toString);
+    assertEquals("first", records.get(0).msg());
+    assertEquals("second line", records.get(1).msg());
+    var trace = records.get(2).msg();
+    assertTrue(trace.startsWith("java.lang.IllegalStateException: boom\n\tat "), trace);
+    assertTrue(trace.contains("\nCaused by: java.lang.RuntimeException: cause\n"), trace);
+    assertEquals("partial", records.get(3).msg());
+    for (var record : records) {
+      assertEquals("writer", record.threadName());
+      assertEquals(thread.threadId(), record.threadId());
+      assertEquals("stderr", record.logger());
+    }
+  }
+
+  @Test
+  void overflow() {
+    var queue = new ArrayBlockingQueue<LogRecord>(1);
+    var stream = new LoggingStream(queue, mdcAdapter, timestamps, 0L, 1 << 16);
+    for (int i = 0; i < 4; i++) {
+      stream.println("line " + i);
+    }
+    stream.expire(true);
+    assertEquals(1, queue.size());
+    assertEquals(3L, stream.dropped());
+    assertEquals(0L, stream.dropped());
+  }
+
+  @Test
+  void singleBytes() {
+    var queue = new ArrayBlockingQueue<LogRecord>(4);
+    var stream = new LoggingStream(queue, mdcAdapter, timestamps, 0L, 1 << 16);
+    for (var b : "single\r\n".getBytes()) {
+      stream.write(b);
+    }
+    stream.expire(true);
+    assertEquals("single", queue.remove().msg());
+  }
+
+  @Test
+  void truncation() {
+    var queue = new ArrayBlockingQueue<LogRecord>(4);
+    var stream = new LoggingStream(queue, mdcAdapter, timestamps, 0L, 8);
+    stream.println("0123456789");
+    stream.expire(true);
+    assertEquals("01234567", queue.remove().msg());
+  }
+}
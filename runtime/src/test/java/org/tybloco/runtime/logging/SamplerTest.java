@@ -0,0 +1,146 @@
+package org.tybloco.runtime.logging;
+
+/*-
+ * #%L
+ * runtime
+ * %%
+ * Copyright (C) 2023 Montoni
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.tybloco.runtime.util.SettingsSnapshot;
+import org.tybloco.testing.eventually.Eventually;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.IntStream;
+
+import static java.util.concurrent.locks.LockSupport.parkNanos;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.tybloco.testing.json.JsonStream.objectList;
+
+class SamplerTest implements Eventually {
+
+  @Test
+  void oneOfN() {
+    var sampler = new Sampler("test", Sampler.Rule.parse("10"));
+    var allowed = 0;
+    for (int i = 0; i < 100; i++) {
+      if (sampler.allow("a {}")) allowed++;
+      if (sampler.allow("b {}")) allowed++;
+    }
+    assertEquals(20, allowed);
+    var report = new HashMap<String, Long>();
+    sampler.report((name, callSite, suppressed) -> report.put(callSite, suppressed));
+    assertEquals(90L, report.get("a {}"));
+    assertEquals(90L, report.get("b {}"));
+  }
+
+  @Test
+  void rate() {
+    var sampler = new Sampler("test", Sampler.Rule.parse("100/s"));
+    var allowed = IntStream.range(0, 10_000).filter(i -> sampler.allow(null)).count();
+    assertTrue(allowed >= 100L && allowed < 200L, () -> Long.toString(allowed));
+  }
+
+  @Test
+  void invalidRule() {
+    assertThrows(IllegalArgumentException.class, () -> Sampler.Rule.parse("0"));
+  }
+
+  @Test
+  void summary(@TempDir Path dir) throws IOException {
+    var file = dir.resolve("logging.properties");
+    Files.writeString(file, "sampling.abc=100,abc\n");
+    System.setProperty("ty.log.config", file.toString());
+    System.setProperty("ty.log.sampling.report.period", "10");
+    SettingsSnapshot.refresh();
+    var os = new ByteArrayOutputStream();
+    try (var provider = new LoggingServiceProvider(os)) {
+      var logger = provider.getLoggerFactory().getLogger("abc");
+      for (int i = 0; i < 1_000; i++) {
+        logger.warn("Warning {}", i);
+      }
+      eventually(() -> {
+        var records = objectList(os);
+        var messages = records.stream().map(o -> o.get("message").getAsString()).toList();
+        assertEquals(10L, messages.stream().filter(m -> m.startsWith("Warning")).count());
+        assertEquals(990L, suppressed(messages), messages::toString);
+        return null;
+      });
+    } finally {
+      System.clearProperty("ty.log.config");
+      System.clearProperty("ty.log.sampling.report.period");
+      SettingsSnapshot.refresh();
+    }
+  }
+
+  @Test
+  void summaryUnderLoad(@TempDir Path dir) throws Exception {
+    var file = dir.resolve("logging.properties");
+    Files.writeString(file, "sampling.abc=100,abc\n");
+    System.setProperty("ty.log.config", file.toString());
+    System.setProperty("ty.log.sampling.report.period", "10");
+    SettingsSnapshot.refresh();
+    var os = new ByteArrayOutputStream();
+    var stop = new AtomicBoolean();
+    try (var provider = new LoggingServiceProvider(os)) {
+      var busy = provider.getLoggerFactory().getLogger("busy");
+      var thread = Thread.ofPlatform().start(() -> {
+        while (!stop.get()) {
+          busy.info("Busy");
+          parkNanos(1_000L);
+        }
+      });
+      try {
+        var logger = provider.getLoggerFactory().getLogger("abc");
+        for (int i = 0; i < 1_000; i++) {
+          logger.warn("Warning {}", i);
+        }
+        eventually(() -> {
+          var messages = objectList(os).stream().map(o -> o.get("message").getAsString()).toList();
+          assertEquals(990L, suppressed(messages));
+          return null;
+        });
+      } finally {
+        stop.set(true);
+        thread.join();
+      }
+    } finally {
+      System.clearProperty("ty.log.config");
+      System.clearProperty("ty.log.sampling.report.period");
+      SettingsSnapshot.refresh();
+    }
+  }
+
+  private static long suppressed(List<String> messages) {
+    var pattern = Pattern.compile("Suppressed (\\d+) records of \"Warning \\{}\"");
+    return messages.stream()
+      .map(pattern::matcher)
+      .filter(Matcher::matches)
+      .mapToLong(m -> Long.parseLong(m.group(1)))
+      .sum();
+  }
+}
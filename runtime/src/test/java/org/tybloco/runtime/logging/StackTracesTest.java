@@ -0,0 +1,96 @@
+package org.tybloco.runtime.logging;
+
+/*-
+ * #%L
+ * runtime
+ * %%
+ * Copyright (C) 2023 Montoni
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import com.google.gson.JsonObject;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.tybloco.testing.json.JsonStream.objectList;
+
+class StackTracesTest {
+
+  @Test
+  void full() throws IOException {
+    var error = new IllegalStateException("a\"b", new IllegalArgumentException("c"));
+    error.addSuppressed(new RuntimeException("d"));
+    var json = render(new StackTraces(1024, 32, 0L), error);
+    var trace = json.get("error.stack_trace").getAsString();
+    var lines = trace.split("\n");
+    assertEquals("java.lang.IllegalStateException: a\"b", lines[0]);
+    assertTrue(lines[1].startsWith("\tat " + StackTracesTest.class.getName() + ".full(StackTracesTest.java:"), lines[1]);
+    assertTrue(trace.contains("\n\tSuppressed: java.lang.RuntimeException: d\n"), trace);
+    assertTrue(trace.contains("\nCaused by: java.lang.IllegalArgumentException: c\n"), trace);
+    assertTrue(trace.endsWith(" more\n"), trace);
+    assertNull(json.get("error.stack_trace_hash"));
+  }
+
+  @Test
+  void truncated() throws IOException {
+    var error = new IllegalStateException("a", new IllegalArgumentException("c"));
+    var trace = render(new StackTraces(1, 0, 0L), error).get("error.stack_trace").getAsString();
+    var lines = trace.split("\n");
+    assertEquals(3, lines.length, trace);
+    assertTrue(lines[2].matches("\t\\.\\.\\. \\d+ frames truncated"), trace);
+  }
+
+  @Test
+  void dedup() throws IOException {
+    var stackTraces = new StackTraces(1024, 32, 60_000L);
+    var errors = new Throwable[2];
+    for (int i = 0; i < errors.length; i++) {
+      errors[i] = new IllegalStateException("e" + i);
+    }
+    var first = render(stackTraces, errors[0]);
+    var second = render(stackTraces, errors[1]);
+    assertNotNull(first.get("error.stack_trace"));
+    assertNull(second.get("error.stack_trace"));
+    assertEquals(first.get("error.stack_trace_hash"), second.get("error.stack_trace_hash"));
+    var other = render(stackTraces, new IllegalArgumentException());
+    assertNotNull(other.get("error.stack_trace"));
+    assertNotEquals(first.get("error.stack_trace_hash"), other.get("error.stack_trace_hash"));
+  }
+
+  @Test
+  void circular() throws IOException {
+    var a = new IllegalStateException("a");
+    var b = new IllegalStateException("b", a);
+    a.initCause(b);
+    var trace = render(new StackTraces(1024, 32, 0L), a).get("error.stack_trace").getAsString();
+    assertTrue(trace.contains("[CIRCULAR REFERENCE: java.lang.IllegalStateException: a]"), trace);
+  }
+
+  private static JsonObject render(StackTraces stackTraces, Throwable error) throws IOException {
+    try (var buffer = new FileBuffer(1 << 20)) {
+      buffer.write('{');
+      stackTraces.write(buffer, error);
+      buffer.write('}');
+      var os = new ByteArrayOutputStream();
+      buffer.rewind(os);
+      return objectList(os.toString(UTF_8)).getFirst();
+    }
+  }
+}
@@ -0,0 +1,71 @@
+package org.tybloco.runtime.logging;
+
+/*-
+ * #%L
+ * runtime
+ * %%
+ * Copyright (C) 2023 Montoni
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.Instant;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TimestampsTest {
+
+  @Test
+  void millis() throws IOException {
+    var timestamps = new Timestamps(false);
+    assertEquals("\"2023-10-19T12:34:56.007Z\"", format(timestamps, Instant.parse("2023-10-19T12:34:56.007Z")));
+    assertEquals("\"2023-10-19T12:34:56.120Z\"", format(timestamps, Instant.parse("2023-10-19T12:34:56.120999Z")));
+    assertEquals("\"2023-10-19T12:34:57.000Z\"", format(timestamps, Instant.parse("2023-10-19T12:34:57Z")));
+    assertEquals("\"1969-12-31T23:59:59.999Z\"", format(timestamps, Instant.parse("1969-12-31T23:59:59.999Z")));
+  }
+
+  @Test
+  void micros() throws IOException {
+    var timestamps = new Timestamps(true);
+    assertEquals("\"2023-10-19T12:34:56.000001Z\"", format(timestamps, Instant.parse("2023-10-19T12:34:56.000001Z")));
+    assertEquals("\"2023-10-19T12:34:56.123456Z\"", format(timestamps, Instant.parse("2023-10-19T12:34:56.123456789Z")));
+    assertEquals("\"+10000-01-01T00:00:00.500000Z\"", format(timestamps, Instant.parse("+10000-01-01T00:00:00.5Z")));
+  }
+
+  @Test
+  void now() {
+    var timestamps = new Timestamps(true);
+    var before = Instant.now().toEpochMilli() * 1_000L;
+    var now = timestamps.now();
+    var after = (Instant.now().toEpochMilli() + 1L) * 1_000L;
+    assertTrue(before <= now && now <= after, () -> Long.toString(now));
+  }
+
+  private static String format(Timestamps timestamps, Instant instant) throws IOException {
+    var time = instant.getEpochSecond() * 1_000_000L + instant.getNano() / 1_000;
+    try (var buffer = new FileBuffer(1 << 10)) {
+      timestamps.write(buffer, time);
+      var os = new ByteArrayOutputStream();
+      buffer.rewind(os);
+      return os.toString(UTF_8);
+    }
+  }
+}
@@ -0,0 +1,143 @@
+package org.tybloco.runtime.plugins;
+
+/*-
+ * #%L
+ * runtime
+ * %%
+ * Copyright (C) 2023 Montoni
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.tybloco.runtime.application.ApplicationContext;
+import org.tybloco.runtime.application.tasks.PluginLoader;
+
+import javax.tools.ToolProvider;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PluginIndexProcessorTest {
+
+  @Test
+  void indexAndLoad(@TempDir Path dir) throws Exception {
+    var out = dir.resolve("out");
+    assertEquals(0, compile(dir, out, "A", """
+      @org.tybloco.runtime.plugins.PluginInfo(priority = 5)
+      public class A implements org.tybloco.runtime.plugins.Plugin {
+        public void run(org.tybloco.runtime.application.ApplicationContext context) {
+          context.block("a", () -> "A");
+        }
+      }
+      """));
+    assertEquals("5\tA\n", Files.readString(out.resolve(PluginIndex.RESOURCE)));
+    var thread = Thread.currentThread();
+    var old = thread.getContextClassLoader();
+    try (var classLoader = new URLClassLoader(new URL[] {out.toUri().toURL()}, old)) {
+      assertEquals(List.of(new PluginIndex("A", 5)), PluginIndex.load(classLoader));
+      thread.setContextClassLoader(classLoader);
+      var context = new ApplicationContext();
+      var loader = new PluginLoader();
+      loader.run(context);
+      assertEquals("A", context.block("a"));
+      assertEquals(5, loader.timings().getFirst().priority());
+    } finally {
+      thread.setContextClassLoader(old);
+    }
+  }
+
+  @Test
+  void incrementalCompileKeepsIndexedPlugins(@TempDir Path dir) throws Exception {
+    var out = dir.resolve("out");
+    assertEquals(0, compile(dir, out, "A", """
+      @org.tybloco.runtime.plugins.PluginInfo(priority = 5)
+      public class A implements org.tybloco.runtime.plugins.Plugin {
+        public void run(org.tybloco.runtime.application.ApplicationContext context) {
+        }
+      }
+      """));
+    assertEquals(0, compile(dir, out, "C", """
+      @org.tybloco.runtime.plugins.PluginInfo(priority = 1)
+      public class C implements org.tybloco.runtime.plugins.Plugin {
+        public void run(org.tybloco.runtime.application.ApplicationContext context) {
+        }
+      }
+      """));
+    assertEquals("1\tC\n5\tA\n", Files.readString(out.resolve(PluginIndex.RESOURCE)));
+  }
+
+  @Test
+  void mergeServicesFromJarsWithoutIndex(@TempDir Path dir) throws Exception {
+    var indexed = Files.createDirectories(dir.resolve("indexed").resolve("META-INF").resolve("tybloco"));
+    Files.writeString(indexed.resolve("plugins.idx"), "5\tA\n");
+    var indexedServices = Files.createDirectories(dir.resolve("indexed").resolve("META-INF").resolve("services"));
+    Files.writeString(indexedServices.resolve(Plugin.class.getName()), "A\nHidden\n");
+    var plain = Files.createDirectories(dir.resolve("plain").resolve("META-INF").resolve("services"));
+    Files.writeString(plain.resolve(Plugin.class.getName()), "# comment\nB # trailing\nA\n");
+    var urls = new URL[] {dir.resolve("indexed").toUri().toURL(), dir.resolve("plain").toUri().toURL()};
+    try (var classLoader = new URLClassLoader(urls, null)) {
+      assertEquals(List.of(new PluginIndex("A", 5), new PluginIndex("B", Integer.MAX_VALUE)), PluginIndex.load(classLoader, true));
+      assertEquals(List.of(new PluginIndex("A", 5)), PluginIndex.load(classLoader));
+    }
+  }
+
+  @Test
+  void indexedRootsAreNotScannedForServices(@TempDir Path dir) throws Exception {
+    var indexed = Files.createDirectories(dir.resolve("META-INF").resolve("tybloco"));
+    Files.writeString(indexed.resolve("plugins.idx"), "5\tA\n");
+    var services = Files.createDirectories(dir.resolve("META-INF").resolve("services"));
+    Files.writeString(services.resolve(Plugin.class.getName()), "A\n");
+    var requested = new ArrayList<String>();
+    try (var classLoader = new URLClassLoader(new URL[] {dir.toUri().toURL()}, null) {
+      @Override
+      public Enumeration<URL> getResources(String name) throws IOException {
+        requested.add(name);
+        return super.getResources(name);
+      }
+    }) {
+      assertEquals(List.of(new PluginIndex("A", 5)), PluginIndex.load(classLoader));
+      assertEquals(List.of(PluginIndex.RESOURCE), requested);
+    }
+  }
+
+  @Test
+  void rejectNonPlugin(@TempDir Path dir) throws Exception {
+    assertNotEquals(0, compile(dir, dir.resolve("out"), "B", """
+      @org.tybloco.runtime.plugins.PluginInfo
+      public class B {
+      }
+      """));
+  }
+
+  private static int compile(Path dir, Path out, String name, String code) throws IOException {
+    Files.createDirectories(out);
+    var file = Files.writeString(dir.resolve(name + ".java"), code);
+    var cp = Path.of(Plugin.class.getProtectionDomain().getCodeSource().getLocation().getPath()).toString();
+    var compiler = ToolProvider.getSystemJavaCompiler();
+    var err = new ByteArrayOutputStream();
+    return compiler.run(null, null, err, "-cp", cp + File.pathSeparator + out, "-processor", PluginIndexProcessor.class.getName(), "-d", out.toString(), file.toString());
+  }
+}
@@ -0,0 +1,102 @@
+package org.tybloco.runtime.util;
+
+/*-
+ * #%L
+ * runtime
+ * %%
+ * Copyright (C) 2023 Montoni
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SettingsTest {
+
+  @Test
+  void sizes() {
+    assertEquals(10L, SettingValues.parseSize("X", "10"));
+    assertEquals(2L << 10, SettingValues.parseSize("X", "2k"));
+    assertEquals(3L << 20, SettingValues.parseSize("X", "3M"));
+    assertEquals(8L << 30, SettingValues.parseSize("X", "8g"));
+    assertEquals(2L << 40, SettingValues.parseSize("X", "2TB"));
+    assertThrows(IllegalArgumentException.class, () -> SettingValues.parseIntSize("X", "4g"));
+    assertThrows(IllegalArgumentException.class, () -> SettingValues.parseSize("X", "9000000t"));
+    assertThrows(IllegalArgumentException.class, () -> SettingValues.parseSize("X", "1q"));
+  }
+
+  @Test
+  void durations() {
+    assertEquals(Duration.ofMillis(250L), SettingValues.parseDuration("X", "250"));
+    assertEquals(Duration.ofMillis(250L), SettingValues.parseDuration("X", "250ms"));
+    assertEquals(Duration.ofSeconds(5L), SettingValues.parseDuration("X", "5s"));
+    assertEquals(Duration.ofMinutes(2L), SettingValues.parseDuration("X", "2m"));
+    assertEquals(Duration.ofHours(1L), SettingValues.parseDuration("X", "1h"));
+    assertEquals(Duration.ofSeconds(90L), SettingValues.parseDuration("X", "PT1M30S"));
+    assertThrows(IllegalArgumentException.class, () -> SettingValues.parseDuration("X", "5w"));
+  }
+
+  @Test
+  void lists() {
+    System.setProperty("ty.test.list", " a, b ,,c ");
+    SettingsSnapshot.refresh();
+    try {
+      assertEquals(List.of("a", "b", "c"), Settings.listSetting("TY_TEST_LIST"));
+      assertEquals(List.of(), Settings.listSetting("TY_TEST_MISSING"));
+    } finally {
+      System.clearProperty("ty.test.list");
+      SettingsSnapshot.refresh();
+    }
+  }
+
+  @Test
+  void snapshotRefresh(@TempDir Path dir) throws IOException {
+    var file = Files.writeString(dir.resolve("settings.properties"), "ty.test.timeout=5s\nTY_TEST_SIZE=2g\n");
+    var notified = new AtomicReference<SettingsSnapshot>();
+    Consumer<SettingsSnapshot> listener = notified::set;
+    SettingsSnapshot.addListener(listener);
+    System.setProperty("ty.settings.file", file.toString());
+    try {
+      var snapshot = SettingsSnapshot.refresh();
+      assertSame(snapshot, notified.get());
+      assertEquals(Duration.ofSeconds(5L), snapshot.durationSetting("TY_TEST_TIMEOUT").orElseThrow());
+      assertEquals(2L << 30, snapshot.longSizeSetting("TY_TEST_SIZE").orElseThrow());
+      assertSame(snapshot, SettingsSnapshot.refreshIfModified());
+      Files.writeString(file, "ty.test.timeout=7s\n");
+      Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() + 10_000L));
+      var next = SettingsSnapshot.refreshIfModified();
+      assertNotSame(snapshot, next);
+      assertSame(next, notified.get());
+      assertEquals(Duration.ofSeconds(7L), next.durationSetting("TY_TEST_TIMEOUT").orElseThrow());
+      assertTrue(next.longSizeSetting("TY_TEST_SIZE").isEmpty());
+    } finally {
+      SettingsSnapshot.removeListener(listener);
+      System.clearProperty("ty.settings.file");
+      SettingsSnapshot.refresh();
+    }
+  }
+}
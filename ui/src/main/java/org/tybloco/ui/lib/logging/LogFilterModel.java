@@ -0,0 +1,143 @@
+package org.tybloco.ui.lib.logging;
+
+/*-
+ * #%L
+ * ui
+ * %%
+ * Copyright (C) 2023 Montoni
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import javax.swing.event.TableModelEvent;
+import javax.swing.event.TableModelListener;
+import javax.swing.table.TableModel;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import static javax.swing.event.TableModelEvent.*;
+
+public final class LogFilterModel implements TableModel, AutoCloseable {
+
+  private final UILogHandler handler;
+  private final ConcurrentLinkedQueue<TableModelListener> listeners = new ConcurrentLinkedQueue<>();
+  private final TableModelListener handlerListener = this::onHandlerChanged;
+  private final LogIndex.Subscription subscription;
+  private long[] seqs = new long[1024];
+  private int start;
+  private int end;
+  private volatile boolean closed;
+
+  LogFilterModel(UILogHandler handler, LogQuery query) {
+    this.handler = handler;
+    handler.addTableModelListener(handlerListener);
+    this.subscription = handler.subscribe(query, chunk -> handler.ui.execute(() -> append(chunk)));
+  }
+
+  private void append(long[] chunk) {
+    if (closed) {
+      return;
+    }
+    var first = handler.firstSeq();
+    var from = 0;
+    while (from < chunk.length && chunk[from] < first) from++;
+    var count = chunk.length - from;
+    if (count == 0) {
+      return;
+    }
+    if (end + count > seqs.length) {
+      var size = end - start;
+      var target = size + count > seqs.length / 2 ? Arrays.copyOf(seqs, Math.max(seqs.length * 2, size + count)) : seqs;
+      System.arraycopy(seqs, start, target, 0, size);
+      seqs = target;
+      start = 0;
+      end = size;
+    }
+    System.arraycopy(chunk, from, seqs, end, count);
+    end += count;
+    fire(new TableModelEvent(this, end - start - count, end - start - 1, ALL_COLUMNS, INSERT));
+  }
+
+  private void onHandlerChanged(TableModelEvent event) {
+    if (event.getType() != DELETE) {
+      return;
+    }
+    var first = handler.firstSeq();
+    var from = start;
+    while (start < end && seqs[start] < first) start++;
+    var removed = start - from;
+    if (removed > 0) {
+      fire(new TableModelEvent(this, 0, removed - 1, ALL_COLUMNS, DELETE));
+    }
+  }
+
+  private void fire(TableModelEvent event) {
+    listeners.forEach(l -> l.tableChanged(event));
+  }
+
+  @Override
+  public int getRowCount() {
+    return end - start;
+  }
+
+  @Override
+  public int getColumnCount() {
+    return handler.getColumnCount();
+  }
+
+  @Override
+  public String getColumnName(int columnIndex) {
+    return handler.getColumnName(columnIndex);
+  }
+
+  @Override
+  public Class<?> getColumnClass(int columnIndex) {
+    return handler.getColumnClass(columnIndex);
+  }
+
+  @Override
+  public boolean isCellEditable(int rowIndex, int columnIndex) {
+    return false;
+  }
+
+  @Override
+  public Object getValueAt(int rowIndex, int columnIndex) {
+    if (rowIndex < 0 || rowIndex >= end - start) {
+      throw new IndexOutOfBoundsException(rowIndex);
+    }
+    return UILogHandler.value(handler.recordAt(seqs[start + rowIndex]), columnIndex);
+  }
+
+  @Override
+  public void setValueAt(Object aValue, int rowIndex, int columnIndex) {
+  }
+
+  @Override
+  public void addTableModelListener(TableModelListener l) {
+    listeners.add(l);
+  }
+
+  @Override
+  public void removeTableModelListener(TableModelListener l) {
+    listeners.remove(l);
+  }
+
+  @Override
+  public void close() {
+    closed = true;
+    handler.removeTableModelListener(handlerListener);
+    handler.unsubscribe(subscription);
+  }
+}
@@ -0,0 +1,338 @@
+package org.tybloco.ui.lib.logging;
+
+/*-
+ * #%L
+ * ui
+ * %%
+ * Copyright (C) 2023 Montoni
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+
+final class LogIndex {
+
+  private static final int CHUNK = 1024;
+  private static final int MAX_WORD = 64;
+  private static final int[] LEVELS = {
+    Level.SEVERE.intValue(),
+    Level.WARNING.intValue(),
+    Level.INFO.intValue(),
+    Level.CONFIG.intValue(),
+    Level.FINE.intValue(),
+    Level.FINER.intValue(),
+    Level.FINEST.intValue()
+  };
+
+  private final int capacity;
+  private final long[][] levelBits;
+  private final int[] loggers;
+  private final String[] messages;
+  private final HashMap<String, Integer> loggerIds = new HashMap<>(64, 0.5f);
+  private final ArrayList<String> loggerNames = new ArrayList<>(64);
+  private final TreeMap<String, Postings> words = new TreeMap<>();
+  private final ArrayList<Subscription> subscriptions = new ArrayList<>(2);
+  private long nextSeq;
+
+  LogIndex(int capacity) {
+    this.capacity = capacity;
+    this.levelBits = new long[LEVELS.length][(capacity + 63) >>> 6];
+    this.loggers = new int[capacity];
+    this.messages = new String[capacity];
+  }
+
+  void add(List<LogRecord> records) {
+    var from = nextSeq;
+    for (var record : records) {
+      add(record);
+    }
+    for (var subscription : subscriptions) {
+      var out = new Output(subscription.sink);
+      scan(subscription, Math.max(from, oldest()), nextSeq, out);
+      out.flush();
+    }
+  }
+
+  void subscribe(Subscription subscription) {
+    subscriptions.add(subscription);
+    var out = new Output(subscription.sink);
+    if (subscription.words.length == 0) {
+      scan(subscription, oldest(), nextSeq, out);
+    } else {
+      for (var seq : candidates(subscription.words)) {
+        var slot = slot(seq);
+        if (subscription.levelMatches(slot) && subscription.loggerMatches(loggers[slot])) out.accept(seq);
+      }
+    }
+    out.flush();
+  }
+
+  void unsubscribe(Subscription subscription) {
+    subscriptions.remove(subscription);
+  }
+
+  private long oldest() {
+    return Math.max(0L, nextSeq - capacity);
+  }
+
+  private int slot(long seq) {
+    return (int) (seq % capacity);
+  }
+
+  private void add(LogRecord record) {
+    var seq = nextSeq++;
+    var slot = slot(seq);
+    for (var bits : levelBits) {
+      bits[slot >>> 6] &= ~(1L << slot);
+    }
+    levelBits[bucket(record.getLevel())][slot >>> 6] |= 1L << slot;
+    loggers[slot] = loggerId(record.getLoggerName());
+    var message = UILogHandler.message(record).toLowerCase(Locale.ROOT);
+    messages[slot] = message;
+    forEachWord(message, word -> words.computeIfAbsent(word, k -> new Postings()).add(seq));
+    if (slot == capacity - 1) {
+      prune();
+    }
+  }
+
+  private int loggerId(String logger) {
+    var name = logger == null ? "" : logger;
+    var id = loggerIds.get(name);
+    if (id == null) {
+      id = loggerNames.size();
+      loggerIds.put(name, id);
+      loggerNames.add(name);
+    }
+    return id;
+  }
+
+  private void prune() {
+    var oldest = oldest();
+    words.values().removeIf(postings -> postings.trim(oldest));
+  }
+
+  private void scan(Subscription subscription, long from, long to, Output out) {
+    var seq = from;
+    while (seq < to) {
+      var slot = slot(seq);
+      var offset = slot & 63;
+      var span = (int) Math.min(Math.min(64 - offset, capacity - slot), to - seq);
+      var word = 0L;
+      for (var bucket : subscription.buckets) {
+        word |= levelBits[bucket][slot >>> 6];
+      }
+      word >>>= offset;
+      if (span < 64) {
+        word &= (1L << span) - 1L;
+      }
+      while (word != 0L) {
+        var candidate = seq + Long.numberOfTrailingZeros(word);
+        var candidateSlot = slot(candidate);
+        if (subscription.loggerMatches(loggers[candidateSlot]) && subscription.wordsMatch(messages[candidateSlot])) {
+          out.accept(candidate);
+        }
+        word &= word - 1L;
+      }
+      seq += span;
+    }
+  }
+
+  private long[] candidates(String[] query) {
+    long[] result = null;
+    for (var word : query) {
+      var union = union(word);
+      result = result == null ? union : intersect(result, union);
+      if (result.length == 0) break;
+    }
+    return result == null ? new long[0] : result;
+  }
+
+  private long[] union(String prefix) {
+    var oldest = oldest();
+    var matches = words.subMap(prefix, true, prefix + Character.MAX_VALUE, true).values();
+    var size = 0;
+    for (var postings : matches) {
+      size += postings.size;
+    }
+    var result = new long[size];
+    var len = 0;
+    for (var postings : matches) {
+      for (int i = postings.start; i < postings.size; i++) {
+        var seq = postings.values[i];
+        if (seq >= oldest) result[len++] = seq;
+      }
+    }
+    Arrays.sort(result, 0, len);
+    var unique = 0;
+    for (int i = 0; i < len; i++) {
+      if (unique == 0 || result[unique - 1] != result[i]) result[unique++] = result[i];
+    }
+    return Arrays.copyOf(result, unique);
+  }
+
+  private static long[] intersect(long[] a, long[] b) {
+    var result = new long[Math.min(a.length, b.length)];
+    var len = 0;
+    for (int i = 0, j = 0; i < a.length && j < b.length; ) {
+      if (a[i] < b[j]) i++;
+      else if (a[i] > b[j]) j++;
+      else {
+        result[len++] = a[i];
+        i++;
+        j++;
+      }
+    }
+    return Arrays.copyOf(result, len);
+  }
+
+  private static int bucket(Level level) {
+    var value = level == null ? Level.INFO.intValue() : level.intValue();
+    for (int i = 0; i < LEVELS.length; i++) {
+      if (value >= LEVELS[i]) return i;
+    }
+    return LEVELS.length - 1;
+  }
+
+  static String[] words(String text) {
+    var result = new ArrayList<String>();
+    if (text != null) {
+      forEachWord(text.toLowerCase(Locale.ROOT), result::add);
+    }
+    return result.toArray(String[]::new);
+  }
+
+  private static void forEachWord(String text, Consumer<String> consumer) {
+    var start = -1;
+    for (int i = 0, l = text.length(); i <= l; i++) {
+      if (i < l && Character.isLetterOrDigit(text.charAt(i))) {
+        if (start < 0) start = i;
+      } else if (start >= 0) {
+        consumer.accept(text.substring(start, Math.min(i, start + MAX_WORD)));
+        start = -1;
+      }
+    }
+  }
+
+  final class Subscription {
+
+    private final int[] buckets;
+    private final String logger;
+    private final String[] words;
+    private final Consumer<long[]> sink;
+    private boolean[] loggerMatches = new boolean[0];
+
+    Subscription(LogQuery query, Consumer<long[]> sink) {
+      var minLevel = query.minLevel() == null ? Integer.MIN_VALUE : query.minLevel().intValue();
+      var buckets = new int[LEVELS.length];
+      var count = 0;
+      for (int i = 0; i < LEVELS.length; i++) {
+        if (LEVELS[i] >= minLevel) buckets[count++] = i;
+      }
+      this.buckets = Arrays.copyOf(buckets, count);
+      this.logger = query.logger() == null || query.logger().isBlank() ? null : query.logger().toLowerCase(Locale.ROOT);
+      this.words = LogIndex.words(query.text());
+      this.sink = sink;
+    }
+
+    private boolean levelMatches(int slot) {
+      for (var bucket : buckets) {
+        if ((levelBits[bucket][slot >>> 6] & (1L << slot)) != 0L) return true;
+      }
+      return false;
+    }
+
+    private boolean loggerMatches(int id) {
+      if (logger == null) return true;
+      if (loggerMatches.length != loggerNames.size()) {
+        var matches = Arrays.copyOf(loggerMatches, loggerNames.size());
+        for (int i = loggerMatches.length; i < matches.length; i++) {
+          matches[i] = loggerNames.get(i).toLowerCase(Locale.ROOT).contains(logger);
+        }
+        loggerMatches = matches;
+      }
+      return loggerMatches[id];
+    }
+
+    private boolean wordsMatch(String message) {
+      if (words.length == 0) return true;
+      var messageWords = LogIndex.words(message);
+      for (var word : words) {
+        var found = false;
+        for (var messageWord : messageWords) {
+          if (messageWord.startsWith(word)) {
+            found = true;
+            break;
+          }
+        }
+        if (!found) return false;
+      }
+      return true;
+    }
+  }
+
+  private static final class Postings {
+
+    private long[] values = new long[4];
+    private int start;
+    private int size;
+
+    private void add(long seq) {
+      if (size > start && values[size - 1] == seq) return;
+      if (size == values.length) {
+        if (start > 0) {
+          System.arraycopy(values, start, values, 0, size - start);
+          size -= start;
+          start = 0;
+        }
+        if (size == values.length) {
+          values = Arrays.copyOf(values, size * 2);
+        }
+      }
+      values[size++] = seq;
+    }
+
+    private boolean trim(long oldest) {
+      while (start < size && values[start] < oldest) start++;
+      return start == size;
+    }
+  }
+
+  private static final class Output {
+
+    private final Consumer<long[]> sink;
+    private final long[] chunk = new long[CHUNK];
+    private int size;
+
+    private Output(Consumer<long[]> sink) {
+      this.sink = sink;
+    }
+
+    private void accept(long seq) {
+      chunk[size++] = seq;
+      if (size == chunk.length) flush();
+    }
+
+    private void flush() {
+      if (size > 0) {
+        sink.accept(Arrays.copyOf(chunk, size));
+        size = 0;
+      }
+    }
+  }
+}
@@ -31,6 +31,12 @@ import java.time.Instant;
 import java.util.ArrayList;
 import java.util.NoSuchElementException;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 import java.util.logging.*;
 
 import static java.util.prefs.Preferences.userNodeForPackage;
@@ -38,48 +44,123 @@ import static javax.swing.event.TableModelEvent.*;
 
 public class UILogHandler extends Handler implements TableModel {
 
-  private final int maxRecords = userNodeForPackage(UILogHandler.class).getInt("max.records", 65536);
-  private final ConcurrentLinkedQueue<LogRecord> primordial = new ConcurrentLinkedQueue<>();
-  private final ArrayList<LogRecord> records = new ArrayList<>();
+  final Executor ui;
+  private final ConcurrentLinkedQueue<LogRecord> pending = new ConcurrentLinkedQueue<>();
+  private final AtomicInteger pendingCount = new AtomicInteger();
+  private final AtomicBoolean scheduled = new AtomicBoolean();
+  private final LogRecord[] records;
   private final ConcurrentLinkedQueue<TableModelListener> listeners = new ConcurrentLinkedQueue<>();
+  private final LogIndex index;
+  private final ExecutorService indexer = Executors.newSingleThreadExecutor(Thread.ofPlatform().name("log-index").daemon().factory());
 
   private volatile boolean flushed;
+  private int head;
+  private int size;
+  private long appended;
+
+  public UILogHandler() {
+    this(userNodeForPackage(UILogHandler.class).getInt("max.records", 65536), Platform::runLater);
+  }
+
+  UILogHandler(int maxRecords, Executor ui) {
+    this.ui = ui;
+    this.records = new LogRecord[Math.max(maxRecords, 1)];
+    this.index = new LogIndex(records.length);
+  }
 
   @Override
   public void publish(LogRecord record) {
+    pending.add(record);
+    if (pendingCount.incrementAndGet() > records.length && pending.poll() != null) {
+      pendingCount.decrementAndGet();
+    }
     if (flushed) {
-      Platform.runLater(() -> add(record));
-    } else {
-      primordial.add(record);
+      schedule();
     }
   }
 
   @Override
   public void flush() {
     flushed = true;
+    schedule();
   }
 
   @Override
   public void close() {
+    indexer.shutdown();
+  }
+
+  public LogFilterModel filter(LogQuery query) {
+    return new LogFilterModel(this, query);
+  }
+
+  LogIndex.Subscription subscribe(LogQuery query, Consumer<long[]> sink) {
+    var subscription = index.new Subscription(query, sink);
+    indexer.execute(() -> index.subscribe(subscription));
+    return subscription;
+  }
+
+  void unsubscribe(LogIndex.Subscription subscription) {
+    indexer.execute(() -> index.unsubscribe(subscription));
+  }
+
+  long firstSeq() {
+    return appended - size;
+  }
+
+  LogRecord recordAt(long seq) {
+    var row = seq - firstSeq();
+    return row < 0L || row >= size ? null : records[(int) ((head + row) % records.length)];
+  }
+
+  private void schedule() {
+    if (scheduled.compareAndSet(false, true)) {
+      ui.execute(this::drain);
+    }
   }
 
-  private void add(LogRecord record) {
-    Platform.runLater(() -> {
-      if (records.size() >= maxRecords) {
-        var toDelete = maxRecords - records.size();
-        while (records.size() >= maxRecords) records.remove(0);
-        var event = new TableModelEvent(this, 0, toDelete, ALL_COLUMNS, DELETE);
-        listeners.forEach(l -> l.tableChanged(event));
+  private void drain() {
+    scheduled.set(false);
+    var capacity = records.length;
+    var batch = new ArrayList<LogRecord>(Math.min(pendingCount.get(), capacity));
+    for (int i = pendingCount.get(); i > 0; i--) {
+      var record = pending.poll();
+      if (record == null) {
+        break;
       }
-      var event = new TableModelEvent(this, records.size(), records.size(), ALL_COLUMNS, INSERT);
-      records.add(record);
-      listeners.forEach(l -> l.tableChanged(event));
-    });
+      pendingCount.decrementAndGet();
+      batch.add(record);
+    }
+    if (batch.isEmpty()) {
+      return;
+    }
+    indexer.execute(() -> index.add(batch));
+    var skipped = Math.max(batch.size() - capacity, 0);
+    var inserted = batch.size() - skipped;
+    var deleted = Math.min(Math.max(size + inserted - capacity, 0), size);
+    if (deleted > 0) {
+      for (int i = 0; i < deleted; i++) {
+        records[(head + i) % capacity] = null;
+      }
+      head = (head + deleted) % capacity;
+      size -= deleted;
+      fire(new TableModelEvent(this, 0, deleted - 1, ALL_COLUMNS, DELETE));
+    }
+    appended += skipped;
+    for (int i = skipped; i < batch.size(); i++) {
+      records[(head + size++) % capacity] = batch.get(i);
+      appended++;
+    }
+    fire(new TableModelEvent(this, size - inserted, size - 1, ALL_COLUMNS, INSERT));
+  }
+
+  private void fire(TableModelEvent event) {
+    listeners.forEach(l -> l.tableChanged(event));
   }
 
   @Override
   public int getRowCount() {
-    return records.size();
+    return size;
   }
 
   @Override
@@ -112,25 +193,36 @@ public class UILogHandler extends Handler implements TableModel {
 
   @Override
   public Object getValueAt(int rowIndex, int columnIndex) {
-    var record = records.get(rowIndex);
+    if (rowIndex < 0 || rowIndex >= size) {
+      throw new IndexOutOfBoundsException(rowIndex);
+    }
+    return value(records[(head + rowIndex) % records.length], columnIndex);
+  }
+
+  static Object value(LogRecord record, int columnIndex) {
+    if (record == null) {
+      return null;
+    }
     return switch (columnIndex) {
       case 0 -> record.getLevel();
       case 1 -> record.getInstant();
-      default -> {
-        try {
-          var params = record.getParameters();
-          if (params == null || params.length == 0) {
-            yield record.getMessage();
-          } else {
-            yield MessageFormat.format(record.getMessage(), params);
-          }
-        } catch (RuntimeException e) {
-          yield record.getMessage();
-        }
-      }
+      default -> message(record);
     };
   }
 
+  static String message(LogRecord record) {
+    try {
+      var params = record.getParameters();
+      if (params == null || params.length == 0) {
+        return record.getMessage();
+      } else {
+        return MessageFormat.format(record.getMessage(), params);
+      }
+    } catch (RuntimeException e) {
+      return record.getMessage();
+    }
+  }
+
   @Override
   public void setValueAt(Object aValue, int rowIndex, int columnIndex) {
   }
@@ -0,0 +1,84 @@
+package org.tybloco.ui.lib.logging;
+
+/*-
+ * #%L
+ * ui
+ * %%
+ * Copyright (C) 2023 Montoni
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+
+import static javax.swing.event.TableModelEvent.DELETE;
+import static org.junit.jupiter.api.Assertions.*;
+
+class LogFilterModelTest {
+
+  private final LinkedBlockingQueue<Runnable> ui = new LinkedBlockingQueue<>();
+
+  @Test
+  void filteredRowsFollowHandler() throws Exception {
+    var handler = new UILogHandler(4, ui::add);
+    handler.flush();
+    try (var model = handler.filter(new LogQuery(Level.WARNING, null, null))) {
+      var deleted = new ArrayList<Integer>();
+      model.addTableModelListener(e -> {
+        if (e.getType() == DELETE) deleted.add(e.getLastRow() - e.getFirstRow() + 1);
+      });
+      handler.publish(new LogRecord(Level.INFO, "m0"));
+      handler.publish(new LogRecord(Level.WARNING, "m1"));
+      handler.publish(new LogRecord(Level.SEVERE, "m2"));
+      pumpUntil(() -> model.getRowCount() == 2);
+      assertEquals(List.of("m1", "m2"), messages(model));
+      assertEquals(Level.SEVERE, model.getValueAt(1, 0));
+      UILogHandlerTest.publish(handler, 3, 2);
+      handler.publish(new LogRecord(Level.WARNING, "m5"));
+      pumpUntil(() -> handler.getRowCount() == 4 && model.getRowCount() == 2);
+      assertEquals(List.of("m2", "m5"), messages(model));
+      assertEquals(List.of(1), deleted);
+      UILogHandlerTest.publish(handler, 6, 3);
+      pumpUntil(() -> handler.firstSeq() == 5L);
+      assertEquals(List.of("m5"), messages(model));
+      assertEquals(List.of(1, 1), deleted);
+    }
+    handler.close();
+  }
+
+  private void pumpUntil(BooleanSupplier condition) throws InterruptedException {
+    while (!condition.getAsBoolean()) {
+      var task = ui.poll(10L, TimeUnit.SECONDS);
+      assertNotNull(task);
+      task.run();
+    }
+  }
+
+  private static List<String> messages(LogFilterModel model) {
+    var messages = new ArrayList<String>();
+    for (int i = 0; i < model.getRowCount(); i++) {
+      messages.add((String) model.getValueAt(i, 2));
+    }
+    return messages;
+  }
+}
@@ -0,0 +1,97 @@
+package org.tybloco.ui.lib.logging;
+
+/*-
+ * #%L
+ * ui
+ * %%
+ * Copyright (C) 2023 Montoni
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class LogIndexTest {
+
+  @Test
+  void levelsLoggersAndWords() {
+    var index = new LogIndex(16);
+    index.add(List.of(
+      record(Level.INFO, "a.B", "Connection opened"),
+      record(Level.WARNING, "a.C", "Connection lost"),
+      record(Level.SEVERE, "x.Y", "Disk full"),
+      record(Level.FINE, "a.B", "connection details")
+    ));
+    assertEquals(List.of(1L, 2L), seqs(index, new LogQuery(Level.WARNING, null, null)));
+    assertEquals(List.of(0L, 1L, 3L), seqs(index, new LogQuery(null, "A.", null)));
+    assertEquals(List.of(0L, 1L, 3L), seqs(index, new LogQuery(null, null, "conn")));
+    assertEquals(List.of(1L), seqs(index, new LogQuery(Level.INFO, null, "connection lo")));
+    assertEquals(List.of(), seqs(index, new LogQuery(null, "x", "connection")));
+  }
+
+  @Test
+  void wraparound() {
+    var index = new LogIndex(4);
+    var records = new ArrayList<LogRecord>();
+    for (int i = 0; i < 10; i++) {
+      records.add(record(i % 2 == 0 ? Level.INFO : Level.WARNING, "l", "word" + i + " common"));
+    }
+    index.add(records.subList(0, 3));
+    index.add(records.subList(3, 10));
+    assertEquals(List.of(6L, 7L, 8L, 9L), seqs(index, LogQuery.ALL));
+    assertEquals(List.of(7L, 9L), seqs(index, new LogQuery(Level.WARNING, null, null)));
+    assertEquals(List.of(6L, 7L, 8L, 9L), seqs(index, new LogQuery(null, null, "common")));
+    assertEquals(List.of(), seqs(index, new LogQuery(null, null, "word1")));
+    assertEquals(List.of(8L), seqs(index, new LogQuery(null, null, "word8")));
+  }
+
+  @Test
+  void subscriptionsReceiveAppendedRecords() {
+    var index = new LogIndex(8);
+    var received = new ArrayList<Long>();
+    var subscription = index.new Subscription(new LogQuery(Level.WARNING, null, null), chunk -> {
+      for (var seq : chunk) received.add(seq);
+    });
+    index.subscribe(subscription);
+    index.add(List.of(record(Level.INFO, "l", "a"), record(Level.SEVERE, "l", "b")));
+    index.add(List.of(record(Level.WARNING, "l", "c")));
+    index.unsubscribe(subscription);
+    index.add(List.of(record(Level.SEVERE, "l", "d")));
+    assertEquals(List.of(1L, 2L), received);
+    assertArrayEquals(new String[] {"a1", "b2"}, LogIndex.words("A1, b2!"));
+  }
+
+  private static List<Long> seqs(LogIndex index, LogQuery query) {
+    var result = new ArrayList<Long>();
+    index.subscribe(index.new Subscription(query, chunk -> {
+      for (var seq : chunk) result.add(seq);
+    }));
+    return result;
+  }
+
+  private static LogRecord record(Level level, String logger, String message) {
+    var record = new LogRecord(level, message);
+    record.setLoggerName(logger);
+    return record;
+  }
+}
@@ -0,0 +1,102 @@
+package org.tybloco.ui.lib.logging;
+
+/*-
+ * #%L
+ * ui
+ * %%
+ * Copyright (C) 2023 Montoni
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+
+import org.junit.jupiter.api.Test;
+
+import javax.swing.event.TableModelEvent;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+
+import static javax.swing.event.TableModelEvent.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class UILogHandlerTest {
+
+  private final LinkedBlockingQueue<Runnable> ui = new LinkedBlockingQueue<>();
+
+  @Test
+  void ringWraparound() {
+    var handler = new UILogHandler(4, ui::add);
+    var events = new ArrayList<String>();
+    handler.addTableModelListener(e -> events.add(event(e) + "/" + handler.getRowCount()));
+    handler.flush();
+    publish(handler, 0, 3);
+    pump();
+    assertEquals(List.of("INSERT 0-2/3"), events);
+    publish(handler, 3, 3);
+    pump();
+    assertEquals(List.of("INSERT 0-2/3", "DELETE 0-1/1", "INSERT 1-3/4"), events);
+    assertEquals(List.of("m2", "m3", "m4", "m5"), messages(handler));
+    assertEquals(2L, handler.firstSeq());
+    assertNull(handler.recordAt(1L));
+    assertEquals("m5", handler.recordAt(5L).getMessage());
+    assertNull(handler.recordAt(6L));
+    handler.close();
+  }
+
+  @Test
+  void pendingRecordsAreCoalesced() {
+    var handler = new UILogHandler(4, ui::add);
+    publish(handler, 0, 10);
+    assertTrue(ui.isEmpty());
+    handler.flush();
+    assertEquals(1, ui.size());
+    publish(handler, 10, 3);
+    assertEquals(1, ui.size());
+    pump();
+    assertEquals(List.of("m9", "m10", "m11", "m12"), messages(handler));
+    assertTrue(ui.isEmpty());
+    handler.close();
+  }
+
+  private void pump() {
+    for (var task = ui.poll(); task != null; task = ui.poll()) {
+      task.run();
+    }
+  }
+
+  static void publish(UILogHandler handler, int from, int count) {
+    for (int i = from; i < from + count; i++) {
+      handler.publish(new LogRecord(Level.INFO, "m" + i));
+    }
+  }
+
+  private static List<String> messages(UILogHandler handler) {
+    var messages = new ArrayList<String>();
+    for (int i = 0; i < handler.getRowCount(); i++) {
+      messages.add((String) handler.getValueAt(i, 2));
+    }
+    return messages;
+  }
+
+  private static String event(TableModelEvent e) {
+    return switch (e.getType()) {
+      case INSERT -> "INSERT ";
+      case DELETE -> "DELETE ";
+      default -> "UPDATE ";
+    } + e.getFirstRow() + "-" + e.getLastRow();
+  }
+}